@@ -0,0 +1,137 @@
+package week1;
+
+import java.util.Arrays;
+
+/**
+ * Index storing for every vertex of a directed acyclic graph all of its ancestors (the vertices reachable from it,
+ * itself included) together with their distances
+ * <p>
+ * The ancestors of v are ancestors[begin(v)] to ancestors[end(v) - 1] in increasing id order, with the matching
+ * distances at the same positions, so the shortest ancestral path of two vertices is found by a merge join of their
+ * two lists instead of a graph search. This pays off on shallow graphs like the WordNet hypernym DAG, where every
+ * synset has only a few dozen ancestors.
+ * <p>
+ * Algo: vertices are visited in reverse topological order, so that all vertices adjacent from v are done before v.
+ * The list of v is then v itself at distance 0 merged with the lists of its adjacent vertices, one further away,
+ * keeping the smallest distance for ancestors reachable along several paths.
+ */
+final class AncestorIndex {
+
+    private final int[] start;
+    private final int[] size;
+    private final int[] ancestors;
+    private final int[] distances;
+
+    /**
+     * Constructor to build the index of a directed acyclic graph
+     *
+     * @param G
+     */
+    AncestorIndex(CompactDigraph G) {
+        int[] order = G.topologicalOrder();
+        if (order == null) { throw new IllegalArgumentException("Ancestor index requires an acyclic graph!"); }
+        start = new int[G.V()];
+        size = new int[G.V()];
+
+        int[] ancestorList = new int[Math.max(16, G.V() * 2)];
+        int[] distanceList = new int[ancestorList.length];
+        int length = 0;
+
+        /* dense scratch map from ancestor to distance, valid where stamp[a] == v + 1 */
+        int[] distTo = new int[G.V()];
+        int[] stamp = new int[G.V()];
+        int[] touched = new int[G.V()];
+
+        for (int k = order.length - 1; k >= 0; k--) {
+            int v = order[k];
+            int count = 0;
+            stamp[v] = v + 1;
+            distTo[v] = 0;
+            touched[count++] = v;
+            for (int j = G.begin(v); j < G.end(v); j++) {
+                int w = G.target(j);
+                for (int i = start[w]; i < start[w] + size[w]; i++) {
+                    int a = ancestorList[i];
+                    int distance = distanceList[i] + 1;
+                    if (stamp[a] != v + 1) {
+                        stamp[a] = v + 1;
+                        distTo[a] = distance;
+                        touched[count++] = a;
+                    } else if (distance < distTo[a]) {
+                        distTo[a] = distance;
+                    }
+                }
+            }
+            Arrays.sort(touched, 0, count);
+
+            if (length + count > ancestorList.length) {
+                int capacity = Math.max(length + count, ancestorList.length * 2);
+                ancestorList = Arrays.copyOf(ancestorList, capacity);
+                distanceList = Arrays.copyOf(distanceList, capacity);
+            }
+            start[v] = length;
+            size[v] = count;
+            for (int i = 0; i < count; i++) {
+                ancestorList[length] = touched[i];
+                distanceList[length++] = distTo[touched[i]];
+            }
+        }
+        ancestors = Arrays.copyOf(ancestorList, length);
+        distances = Arrays.copyOf(distanceList, length);
+    }
+
+    /**
+     * Constructor to wrap the given ancestor lists, the list of v being at positions offsets[v] to
+     * offsets[v + 1] - 1. The arrays are used without a copy
+     *
+     * @param offsets
+     * @param ancestors
+     * @param distances
+     */
+    AncestorIndex(int[] offsets, int[] ancestors, int[] distances) {
+        start = new int[offsets.length - 1];
+        size = new int[offsets.length - 1];
+        for (int v = 0; v < start.length; v++) {
+            start[v] = offsets[v];
+            size[v] = offsets[v + 1] - offsets[v];
+        }
+        this.ancestors = ancestors;
+        this.distances = distances;
+    }
+
+    /**
+     * Returns the position of the first ancestor of v
+     *
+     * @param v
+     */
+    int begin(int v) {
+        return start[v];
+    }
+
+    /**
+     * Returns the position after the last ancestor of v
+     *
+     * @param v
+     */
+    int end(int v) {
+        return start[v] + size[v];
+    }
+
+    /**
+     * Returns the ancestor at the given position
+     *
+     * @param i
+     */
+    int ancestor(int i) {
+        return ancestors[i];
+    }
+
+    /**
+     * Returns the distance to the ancestor at the given position
+     *
+     * @param i
+     */
+    int distance(int i) {
+        return distances[i];
+    }
+}
@@ -0,0 +1,267 @@
+package week1;
+
+/**
+ * Search engine to find the shortest ancestral path between two sets of vertices of a digraph
+ * <p>
+ * Instead of running two complete breadth first searches and scanning every vertex of the graph afterwards, both
+ * frontiers are expanded one level at a time (always the smaller one first). Every vertex reached from one side
+ * which has already been reached from the other side is a common ancestor, and the best one seen so far bounds the
+ * search: a side stops expanding once its next level is deeper than the best ancestral path found, as nothing
+ * beyond it can produce a shorter path. The work done is thus proportional to the explored neighbourhood of the
+ * two sources rather than to the size of the graph.
+ * <p>
+ * Among several common ancestors of the same length, the one with the highest vertex id is returned, which is the
+ * same ancestor a full scan over all vertices would pick.
+ * <p>
+ * All scratch state is allocated once: the queues are plain int arrays and a vertex counts as visited only if its
+ * stamp equals the epoch of the current query. Starting a new query is just an increment of the epoch, so nothing
+ * has to be cleared between queries and a search allocates no memory at all, which SAPAllocationCheck checks.
+ * Because of this state an engine must only be used by one thread at a time; the immutable graph itself may be
+ * shared between engines.
+ * <p>
+ * If an AncestorIndex of the graph is available no graph search is needed at all: the shortest ancestral path is
+ * found by merge joining the sorted ancestor lists of every pair of sources.
+ */
+final class AncestralSearch {
+
+    private final CompactDigraph G;
+    /* null when the queries are answered by searching the graph */
+    private final AncestorIndex index;
+
+    /* distance from the v (resp. w) sources, valid only where the stamp equals the current epoch */
+    private final int[] vDistTo;
+    private final int[] wDistTo;
+    private final int[] vStamp;
+    private final int[] wStamp;
+    /* each vertex is queued at most once per side, so the queues never wrap */
+    private final int[] vQueue;
+    private final int[] wQueue;
+    private int epoch;
+    private int vTail;
+    private int wTail;
+
+    /* result of the last search */
+    private int minDistance;
+    private int commonAncestor;
+
+    AncestralSearch(CompactDigraph G, AncestorIndex index) {
+        this.G = G;
+        this.index = index;
+        vDistTo = new int[G.V()];
+        wDistTo = new int[G.V()];
+        vStamp = new int[G.V()];
+        wStamp = new int[G.V()];
+        vQueue = new int[G.V()];
+        wQueue = new int[G.V()];
+    }
+
+    /**
+     * Returns the length of the last ancestral path found, -1 if there is none
+     */
+    int length() {
+        return minDistance;
+    }
+
+    /**
+     * Returns the common ancestor of the last ancestral path found, -1 if there is none
+     */
+    int ancestor() {
+        return commonAncestor;
+    }
+
+    /**
+     * Method to find the shortest ancestral path between two vertices
+     *
+     * @param v
+     * @param w
+     */
+    void search(int v, int w) {
+        begin();
+        seedV(v);
+        seedW(w);
+        run();
+    }
+
+    /**
+     * Polymorph method for iterables, the vertices are validated while seeding the search
+     *
+     * @param v
+     * @param w
+     */
+    void search(Iterable<Integer> v, Iterable<Integer> w) {
+        begin();
+        for (int s : v) {
+            validate(s);
+            seedV(s);
+        }
+        for (int s : w) {
+            validate(s);
+            seedW(s);
+        }
+        run();
+    }
+
+    /**
+     * Polymorph method for slices of int arrays, the sources being v[vFrom..vTo) and w[wFrom..wTo)
+     *
+     * @param v
+     * @param vFrom
+     * @param vTo
+     * @param w
+     * @param wFrom
+     * @param wTo
+     */
+    void search(int[] v, int vFrom, int vTo, int[] w, int wFrom, int wTo) {
+        begin();
+        for (int i = vFrom; i < vTo; i++) {
+            validate(v[i]);
+            seedV(v[i]);
+        }
+        for (int i = wFrom; i < wTo; i++) {
+            validate(w[i]);
+            seedW(w[i]);
+        }
+        run();
+    }
+
+    /**
+     * Method to start a new query by moving on to the next epoch
+     */
+    private void begin() {
+        if (epoch == Integer.MAX_VALUE) {
+            for (int i = 0; i < G.V(); i++) {
+                vStamp[i] = 0;
+                wStamp[i] = 0;
+            }
+            epoch = 0;
+        }
+        epoch++;
+        vTail = 0;
+        wTail = 0;
+        minDistance = -1;
+        commonAncestor = -1;
+    }
+
+    private void validate(int v) {
+        if (v < 0 || v >= G.V()) { throw new IllegalArgumentException(); }
+    }
+
+    private void seedV(int s) {
+        if (vStamp[s] == epoch) { return; }
+        vStamp[s] = epoch;
+        vDistTo[s] = 0;
+        vQueue[vTail++] = s;
+        if (wStamp[s] == epoch) { offer(0, s); }
+    }
+
+    private void seedW(int s) {
+        if (wStamp[s] == epoch) { return; }
+        wStamp[s] = epoch;
+        wDistTo[s] = 0;
+        wQueue[wTail++] = s;
+        if (vStamp[s] == epoch) { offer(0, s); }
+    }
+
+    /**
+     * Method to record a common ancestor if it improves on the best one found so far
+     *
+     * @param distance
+     * @param ancestor
+     */
+    private void offer(int distance, int ancestor) {
+        if (minDistance == -1 || distance < minDistance || (distance == minDistance && ancestor > commonAncestor)) {
+            minDistance = distance;
+            commonAncestor = ancestor;
+        }
+    }
+
+    /**
+     * Method to expand both frontiers level by level until neither can improve on the best ancestral path
+     */
+    private void run() {
+        if (index != null) {
+            join();
+            return;
+        }
+        int vHead = 0, wHead = 0, vLevel = 0, wLevel = 0;
+
+        while (true) {
+            boolean vActive = vHead < vTail && (minDistance == -1 || vLevel < minDistance);
+            boolean wActive = wHead < wTail && (minDistance == -1 || wLevel < minDistance);
+            if (!vActive && !wActive) { break; }
+
+            if (vActive && (!wActive || vTail - vHead <= wTail - wHead)) {
+                int tail = vTail;
+                vTail = expand(vQueue, vHead, tail, vDistTo, vStamp, wDistTo, wStamp);
+                vHead = tail;
+                vLevel++;
+            } else {
+                int tail = wTail;
+                wTail = expand(wQueue, wHead, tail, wDistTo, wStamp, vDistTo, vStamp);
+                wHead = tail;
+                wLevel++;
+            }
+        }
+    }
+
+    /**
+     * Method to find the shortest ancestral path from the ancestor index, joining the lists of every pair of sources
+     */
+    private void join() {
+        for (int i = 0; i < vTail; i++) {
+            for (int j = 0; j < wTail; j++) {
+                join(vQueue[i], wQueue[j]);
+            }
+        }
+    }
+
+    /**
+     * Method to merge join the sorted ancestor lists of two vertices, offering every common ancestor
+     *
+     * @param v
+     * @param w
+     */
+    private void join(int v, int w) {
+        int i = index.begin(v), iEnd = index.end(v);
+        int j = index.begin(w), jEnd = index.end(w);
+        while (i < iEnd && j < jEnd) {
+            int a = index.ancestor(i);
+            int b = index.ancestor(j);
+            if (a < b) {
+                i++;
+            } else if (a > b) {
+                j++;
+            } else {
+                offer(index.distance(i++) + index.distance(j++), a);
+            }
+        }
+    }
+
+    /**
+     * Method to expand one level of a frontier, returns the new tail of its queue
+     *
+     * @param queue
+     * @param head
+     * @param tail
+     * @param distTo
+     * @param stamp
+     * @param otherDistTo
+     * @param otherStamp
+     */
+    private int expand(int[] queue, int head, int tail, int[] distTo, int[] stamp, int[] otherDistTo,
+            int[] otherStamp) {
+        int next = tail;
+        for (int i = head; i < tail; i++) {
+            int elem = queue[i];
+            for (int j = G.begin(elem), end = G.end(elem); j < end; j++) {
+                int x = G.target(j);
+                if (stamp[x] == epoch) { continue; }
+                stamp[x] = epoch;
+                distTo[x] = distTo[elem] + 1;
+                queue[next++] = x;
+                if (otherStamp[x] == epoch) { offer(distTo[x] + otherDistTo[x], x); }
+            }
+        }
+        return next;
+    }
+}
@@ -0,0 +1,143 @@
+package week1;
+
+import edu.princeton.cs.algs4.Digraph;
+
+/**
+ * Immutable digraph stored in compressed sparse row form
+ * <p>
+ * The vertices adjacent from v are targets[offsets[v]] to targets[offsets[v + 1] - 1], so the whole graph is two int
+ * arrays: 4 bytes per edge plus 4 bytes per vertex, against a Bag node and a boxed Integer per edge in a Digraph.
+ * Adjacency lists of consecutive vertices are also consecutive in memory, which keeps traversals cache friendly.
+ */
+final class CompactDigraph {
+
+    private final int[] offsets;
+    private final int[] targets;
+
+    /**
+     * Constructor to copy a Digraph into compressed form
+     *
+     * @param G
+     */
+    CompactDigraph(Digraph G) {
+        offsets = new int[G.V() + 1];
+        targets = new int[G.E()];
+        int i = 0;
+        for (int v = 0; v < G.V(); v++) {
+            offsets[v] = i;
+            for (int w : G.adj(v)) {
+                targets[i++] = w;
+            }
+        }
+        offsets[G.V()] = i;
+    }
+
+    /**
+     * Constructor to build a graph with V vertices from the first E edges from[i] -> to[i], using a counting sort
+     * on the source vertex
+     *
+     * @param V
+     * @param from
+     * @param to
+     * @param E
+     */
+    CompactDigraph(int V, int[] from, int[] to, int E) {
+        offsets = new int[V + 1];
+        targets = new int[E];
+        for (int i = 0; i < E; i++) {
+            offsets[from[i] + 1]++;
+        }
+        for (int v = 0; v < V; v++) {
+            offsets[v + 1] += offsets[v];
+        }
+        int[] next = new int[V];
+        for (int i = 0; i < E; i++) {
+            int v = from[i];
+            targets[offsets[v] + next[v]++] = to[i];
+        }
+    }
+
+    /**
+     * Constructor to wrap the given compressed arrays, which are used without a copy
+     *
+     * @param offsets
+     * @param targets
+     */
+    CompactDigraph(int[] offsets, int[] targets) {
+        this.offsets = offsets;
+        this.targets = targets;
+    }
+
+    /**
+     * Returns the number of vertices
+     */
+    int V() {
+        return offsets.length - 1;
+    }
+
+    /**
+     * Returns the number of edges
+     */
+    int E() {
+        return targets.length;
+    }
+
+    /**
+     * Returns the position of the first vertex adjacent from v
+     *
+     * @param v
+     */
+    int begin(int v) {
+        return offsets[v];
+    }
+
+    /**
+     * Returns the position after the last vertex adjacent from v
+     *
+     * @param v
+     */
+    int end(int v) {
+        return offsets[v + 1];
+    }
+
+    /**
+     * Returns the vertex at the given position of the adjacency lists
+     *
+     * @param i
+     */
+    int target(int i) {
+        return targets[i];
+    }
+
+    /**
+     * Method to check if the graph has a directed cycle
+     */
+    boolean hasCycle() {
+        return topologicalOrder() == null;
+    }
+
+    /**
+     * Method to get the vertices in topological order, every vertex coming before the vertices adjacent from it.
+     * Returns null if the graph has a directed cycle
+     * Algo: Kahn's topological sort - repeatedly remove vertices without incoming edges; any vertex left over lies
+     * on a cycle. Unlike a recursive dfs, this does not overflow the stack on deep graphs.
+     */
+    int[] topologicalOrder() {
+        int[] indegree = new int[V()];
+        for (int i = 0; i < targets.length; i++) {
+            indegree[targets[i]]++;
+        }
+        int[] queue = new int[V()];
+        int tail = 0;
+        for (int v = 0; v < V(); v++) {
+            if (indegree[v] == 0) { queue[tail++] = v; }
+        }
+        for (int head = 0; head < tail; head++) {
+            int v = queue[head];
+            for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+                if (--indegree[targets[i]] == 0) { queue[tail++] = targets[i]; }
+            }
+        }
+        return tail < V() ? null : queue;
+    }
+}
@@ -0,0 +1,386 @@
+package week1;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Compact dictionary of the WordNet nouns and synsets, made only of a few primitive arrays
+ * <p>
+ * Every noun has an int id. Its characters are nounChars[nounOffsets[id]] to nounChars[nounOffsets[id + 1] - 1]
+ * and the ids of its synsets are synsetIds[synsetOffsets[id]] to synsetIds[synsetOffsets[id + 1] - 1], in the
+ * order they appear in the synsets file. Nouns are found through an open addressing hash table of noun ids using
+ * String.hashCode, so a lookup neither allocates nor boxes. The nouns of every synset are stored the same way, as
+ * slices of one char array indexed by synset id; a synset which does not exist has an empty slice.
+ * <p>
+ * Against a HashMap of boxed Integer lists this saves the entry, list, Integer and String objects of every noun
+ * and synset, and the synset ids of a noun can be handed to SAP as an int slice without boxing.
+ */
+final class NounDictionary {
+
+    private final char[] nounChars;
+    private final int[] nounOffsets;
+    private final int[] synsetOffsets;
+    private final int[] synsetIds;
+    private final char[] synsetChars;
+    private final int[] synsetCharOffsets;
+    /* noun id + 1 at the slot of its hash, 0 for an empty slot */
+    private final int[] table;
+
+    /**
+     * Constructor to wrap the given arrays, which are used without a copy
+     *
+     * @param nounChars
+     * @param nounOffsets
+     * @param synsetOffsets
+     * @param synsetIds
+     * @param synsetChars
+     * @param synsetCharOffsets
+     */
+    NounDictionary(char[] nounChars, int[] nounOffsets, int[] synsetOffsets, int[] synsetIds, char[] synsetChars,
+            int[] synsetCharOffsets) {
+        this.nounChars = nounChars;
+        this.nounOffsets = nounOffsets;
+        this.synsetOffsets = synsetOffsets;
+        this.synsetIds = synsetIds;
+        this.synsetChars = synsetChars;
+        this.synsetCharOffsets = synsetCharOffsets;
+        this.table = new int[tableSize(size())];
+        for (int id = 0; id < size(); id++) {
+            int slot = hash(nounChars, nounOffsets[id], nounOffsets[id + 1]) & (table.length - 1);
+            while (table[slot] != 0) {
+                slot = (slot + 1) & (table.length - 1);
+            }
+            table[slot] = id + 1;
+        }
+    }
+
+    /**
+     * Returns the number of nouns
+     */
+    int size() {
+        return nounOffsets.length - 1;
+    }
+
+    /**
+     * Returns the id of the given noun, -1 if it is not a noun
+     *
+     * @param noun
+     */
+    int find(String noun) {
+        int slot = noun.hashCode() & (table.length - 1);
+        while (table[slot] != 0) {
+            int id = table[slot] - 1;
+            if (matches(id, noun)) { return id; }
+            slot = (slot + 1) & (table.length - 1);
+        }
+        return -1;
+    }
+
+    private boolean matches(int id, String noun) {
+        int begin = nounOffsets[id];
+        if (nounOffsets[id + 1] - begin != noun.length()) { return false; }
+        for (int i = 0; i < noun.length(); i++) {
+            if (nounChars[begin + i] != noun.charAt(i)) { return false; }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the noun with the given id
+     *
+     * @param id
+     */
+    String noun(int id) {
+        return new String(nounChars, nounOffsets[id], nounOffsets[id + 1] - nounOffsets[id]);
+    }
+
+    /**
+     * Returns all nouns, creating their Strings while iterating
+     */
+    Iterable<String> nouns() {
+        return () -> new Iterator<String>() {
+            private int id;
+
+            @Override
+            public boolean hasNext() {
+                return id < size();
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext()) { throw new NoSuchElementException(); }
+                return noun(id++);
+            }
+        };
+    }
+
+    /**
+     * Returns the array holding the synset ids of all nouns, which must not be modified
+     */
+    int[] synsetIds() {
+        return synsetIds;
+    }
+
+    /**
+     * Returns the position of the first synset id of the given noun in synsetIds()
+     *
+     * @param id
+     */
+    int synsetsBegin(int id) {
+        return synsetOffsets[id];
+    }
+
+    /**
+     * Returns the position after the last synset id of the given noun in synsetIds()
+     *
+     * @param id
+     */
+    int synsetsEnd(int id) {
+        return synsetOffsets[id + 1];
+    }
+
+    /**
+     * Returns the nouns of the given synset, null if there is no such synset
+     *
+     * @param synsetId
+     */
+    String synset(int synsetId) {
+        if (synsetId < 0 || synsetId >= synsetCharOffsets.length - 1) { return null; }
+        int begin = synsetCharOffsets[synsetId];
+        int end = synsetCharOffsets[synsetId + 1];
+        return begin == end ? null : new String(synsetChars, begin, end - begin);
+    }
+
+    /*
+     * Raw arrays, for writing snapshots
+     */
+
+    char[] nounChars() {
+        return nounChars;
+    }
+
+    int[] nounOffsets() {
+        return nounOffsets;
+    }
+
+    int[] synsetOffsets() {
+        return synsetOffsets;
+    }
+
+    char[] synsetChars() {
+        return synsetChars;
+    }
+
+    int[] synsetCharOffsets() {
+        return synsetCharOffsets;
+    }
+
+    /**
+     * Returns a power of two table size keeping the load factor at most one half
+     *
+     * @param entries
+     */
+    private static int tableSize(int entries) {
+        int size = 16;
+        while (size < entries * 2) {
+            size *= 2;
+        }
+        return size;
+    }
+
+    /**
+     * Returns the String.hashCode of the characters chars[begin..end)
+     *
+     * @param chars
+     * @param begin
+     * @param end
+     */
+    private static int hash(char[] chars, int begin, int end) {
+        int h = 0;
+        for (int i = begin; i < end; i++) {
+            h = 31 * h + chars[i];
+        }
+        return h;
+    }
+
+    /**
+     * Class to collect nouns and synsets one by one and build a NounDictionary from them
+     */
+    static final class Builder {
+
+        private char[] nounChars = new char[1 << 12];
+        private int charCount;
+        private int[] nounOffsets = new int[1 << 10];
+        private int nounCount;
+        private int[] table = new int[1 << 11];
+
+        /* (noun id, synset id) pairs in the order they were added */
+        private int[] pairNouns = new int[1 << 10];
+        private int[] pairSynsets = new int[1 << 10];
+        private int pairCount;
+
+        /* nouns of each synset as a slice of synsetChars, synsetLengths[id] is -1 for a missing synset */
+        private char[] synsetChars = new char[1 << 12];
+        private int synsetCharCount;
+        private int[] synsetStarts = new int[0];
+        private int[] synsetLengths = new int[0];
+
+        /**
+         * Method to record that the given noun belongs to the given synset
+         *
+         * @param noun
+         * @param synsetId
+         */
+        void addNoun(String noun, int synsetId) {
+            checkSynsetId(synsetId);
+            int id = intern(noun);
+            if (pairCount == pairNouns.length) {
+                pairNouns = Arrays.copyOf(pairNouns, pairCount * 2);
+                pairSynsets = Arrays.copyOf(pairSynsets, pairCount * 2);
+            }
+            pairNouns[pairCount] = id;
+            pairSynsets[pairCount++] = synsetId;
+        }
+
+        /**
+         * Method to set the nouns of a synset, replacing any nouns set before
+         *
+         * @param synsetId
+         * @param nouns
+         */
+        void addSynset(int synsetId, String nouns) {
+            checkSynsetId(synsetId);
+            if (synsetId >= synsetLengths.length) {
+                int capacity = Math.max(synsetId + 1, synsetLengths.length * 2);
+                int old = synsetLengths.length;
+                synsetStarts = Arrays.copyOf(synsetStarts, capacity);
+                synsetLengths = Arrays.copyOf(synsetLengths, capacity);
+                Arrays.fill(synsetLengths, old, capacity, -1);
+            }
+            synsetChars = ensureCapacity(synsetChars, synsetCharCount + nouns.length());
+            nouns.getChars(0, nouns.length(), synsetChars, synsetCharCount);
+            synsetStarts[synsetId] = synsetCharCount;
+            synsetLengths[synsetId] = nouns.length();
+            synsetCharCount += nouns.length();
+        }
+
+        /**
+         * Method to build the dictionary, dropping all synsets whose id is not less than synsetLimit together with
+         * the nouns which belong to no other synset
+         *
+         * @param synsetLimit
+         */
+        NounDictionary build(int synsetLimit) {
+            /* renumber the nouns which still have a synset, in the order they were first added */
+            int[] newId = new int[nounCount];
+            Arrays.fill(newId, -1);
+            int[] count = new int[nounCount + 1];
+            int nouns = 0;
+            for (int i = 0; i < pairCount; i++) {
+                if (pairSynsets[i] >= synsetLimit) { continue; }
+                count[pairNouns[i]]++;
+            }
+            char[] chars = new char[charCount];
+            int[] offsets = new int[nounCount + 1];
+            int length = 0;
+            for (int id = 0; id < nounCount; id++) {
+                if (count[id] == 0) { continue; }
+                newId[id] = nouns;
+                int begin = nounOffsets[id];
+                System.arraycopy(nounChars, begin, chars, length, nounOffsets[id + 1] - begin);
+                length += nounOffsets[id + 1] - begin;
+                offsets[++nouns] = length;
+            }
+
+            /* stable counting sort of the pairs by noun */
+            int[] synsetOffsets = new int[nouns + 1];
+            for (int id = 0; id < nounCount; id++) {
+                if (newId[id] >= 0) { synsetOffsets[newId[id] + 1] = count[id]; }
+            }
+            for (int id = 0; id < nouns; id++) {
+                synsetOffsets[id + 1] += synsetOffsets[id];
+            }
+            int[] synsetIds = new int[synsetOffsets[nouns]];
+            int[] next = Arrays.copyOf(synsetOffsets, nouns);
+            for (int i = 0; i < pairCount; i++) {
+                if (pairSynsets[i] >= synsetLimit) { continue; }
+                synsetIds[next[newId[pairNouns[i]]]++] = pairSynsets[i];
+            }
+
+            /* nouns of the synsets, in synset id order */
+            int synsets = Math.min(synsetLengths.length, Math.max(synsetLimit, 0));
+            int[] synsetCharOffsets = new int[synsets + 1];
+            int textLength = 0;
+            for (int synsetId = 0; synsetId < synsets; synsetId++) {
+                textLength += Math.max(synsetLengths[synsetId], 0);
+            }
+            char[] text = new char[textLength];
+            textLength = 0;
+            for (int synsetId = 0; synsetId < synsets; synsetId++) {
+                if (synsetLengths[synsetId] > 0) {
+                    System.arraycopy(synsetChars, synsetStarts[synsetId], text, textLength,
+                            synsetLengths[synsetId]);
+                    textLength += synsetLengths[synsetId];
+                }
+                synsetCharOffsets[synsetId + 1] = textLength;
+            }
+
+            return new NounDictionary(Arrays.copyOf(chars, length), Arrays.copyOf(offsets, nouns + 1),
+                    synsetOffsets, synsetIds, text, synsetCharOffsets);
+        }
+
+        /**
+         * Returns the id of the given noun, adding it if it is new
+         *
+         * @param noun
+         */
+        private int intern(String noun) {
+            int slot = noun.hashCode() & (table.length - 1);
+            while (table[slot] != 0) {
+                int id = table[slot] - 1;
+                if (matches(id, noun)) { return id; }
+                slot = (slot + 1) & (table.length - 1);
+            }
+
+            int id = nounCount++;
+            if (nounCount == nounOffsets.length) { nounOffsets = Arrays.copyOf(nounOffsets, nounCount * 2); }
+            nounOffsets[id] = charCount;
+            nounChars = ensureCapacity(nounChars, charCount + noun.length());
+            noun.getChars(0, noun.length(), nounChars, charCount);
+            charCount += noun.length();
+            nounOffsets[id + 1] = charCount;
+            table[slot] = id + 1;
+            if (nounCount * 2 > table.length) { rehash(); }
+            return id;
+        }
+
+        private boolean matches(int id, String noun) {
+            int begin = nounOffsets[id];
+            if (nounOffsets[id + 1] - begin != noun.length()) { return false; }
+            for (int i = 0; i < noun.length(); i++) {
+                if (nounChars[begin + i] != noun.charAt(i)) { return false; }
+            }
+            return true;
+        }
+
+        private void rehash() {
+            table = new int[table.length * 2];
+            for (int id = 0; id < nounCount; id++) {
+                int slot = hash(nounChars, nounOffsets[id], nounOffsets[id + 1]) & (table.length - 1);
+                while (table[slot] != 0) {
+                    slot = (slot + 1) & (table.length - 1);
+                }
+                table[slot] = id + 1;
+            }
+        }
+
+        private static void checkSynsetId(int synsetId) {
+            if (synsetId < 0) { throw new IllegalArgumentException("Synset id cannot be negative!"); }
+        }
+
+        private static char[] ensureCapacity(char[] chars, int capacity) {
+            return capacity <= chars.length ? chars : Arrays.copyOf(chars, Math.max(capacity, chars.length * 2));
+        }
+    }
+}
@@ -3,8 +3,24 @@ package week1;
 import edu.princeton.cs.algs4.In;
 import edu.princeton.cs.algs4.StdOut;
 
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Class to find the outcast of a list of nouns, the noun with the largest sum of distances to all the others
+ * <p>
+ * Distances are symmetric and the distance of a noun to itself is 0, so only the n * (n - 1) / 2 distances between
+ * distinct positions of a list are computed, each one being added to the sums of both nouns. Many lists can be
+ * evaluated at once with outcasts, which spreads the lists, and the rows of large lists, over a fork/join pool.
+ * WordNet queries are thread safe, so the tasks share the WordNet without locking.
+ */
 public final class Outcast {
 
+    /* lists with fewer distinct pairs are evaluated by a single task */
+    private static final int MIN_PAIRS_TO_SPLIT = 256;
+
     private final WordNet wordnet;
 
     public Outcast(WordNet wordnet) {
@@ -12,21 +28,172 @@ public final class Outcast {
     }
 
     public String outcast(String[] nouns) {
+        validate(nouns);
+        return outcast(nouns, distanceSums(nouns, 0, nouns.length));
+    }
+
+    /**
+     * Method to find the outcast of every given list in parallel on the common fork/join pool. The outcast of
+     * lists[i] is at position i of the result, and is the same as outcast(lists[i])
+     *
+     * @param lists
+     */
+    public String[] outcasts(String[][] lists) {
+        return outcasts(lists, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Method to find the outcast of every given list in parallel on the given fork/join pool. The outcast of
+     * lists[i] is at position i of the result, and is the same as outcast(lists[i])
+     *
+     * @param lists
+     * @param pool
+     */
+    public String[] outcasts(String[][] lists, ForkJoinPool pool) {
+        if (lists == null || pool == null) { throw new IllegalArgumentException("Arguments cannot be null!"); }
+        for (String[] nouns : lists) {
+            validate(nouns);
+        }
+        String[] outcasts = new String[lists.length];
+        pool.invoke(new ListsTask(lists, outcasts, 0, lists.length));
+        return outcasts;
+    }
+
+    /**
+     * Method to check that every given word is a WordNet noun, so that no task fails halfway through
+     *
+     * @param nouns
+     */
+    private void validate(String[] nouns) {
+        if (nouns == null) { throw new IllegalArgumentException("Nouns cannot be null!"); }
+        for (String noun : nouns) {
+            if (!wordnet.isNoun(noun)) {
+                throw new IllegalArgumentException("Input parameters must be valid nouns to calculate distance!");
+            }
+        }
+    }
+
+    /**
+     * Method to pick the noun with the largest distance sum, the first one on ties
+     *
+     * @param nouns
+     * @param distances
+     */
+    private static String outcast(String[] nouns, int[] distances) {
         String noun = null;
         int maxDistance = -1;
+        for (int i = 0; i < nouns.length; i++) {
+            if (distances[i] > maxDistance) {
+                maxDistance = distances[i];
+                noun = nouns[i];
+            }
+        }
+        return noun;
+    }
 
-        for (String nounA : nouns) {
-            int distance = 0;
-            for (String nounB : nouns) {
-                int dist = wordnet.distance(nounA, nounB);
-                distance += (dist > 0 ? dist : 0);
+    /**
+     * Method to sum, for every position of the list, its distances to the positions after it in rows [from, to),
+     * and the distances of rows [from, to) to every position after them
+     *
+     * @param nouns
+     * @param from
+     * @param to
+     */
+    private int[] distanceSums(String[] nouns, int from, int to) {
+        int[] distances = new int[nouns.length];
+        for (int i = from; i < to; i++) {
+            for (int j = i + 1; j < nouns.length; j++) {
+                int dist = wordnet.distance(nouns[i], nouns[j]);
+                if (dist > 0) {
+                    distances[i] += dist;
+                    distances[j] += dist;
+                }
             }
-            if (distance > maxDistance) {
-                maxDistance = distance;
-                noun = nounA;
+        }
+        return distances;
+    }
+
+    /**
+     * Returns the number of distinct pairs in rows [from, to) of a list of n nouns
+     *
+     * @param n
+     * @param from
+     * @param to
+     */
+    private static long pairs(int n, int from, int to) {
+        long rows = to - from;
+        return rows * (n - 1) - ((long) from + to - 1) * rows / 2;
+    }
+
+    /**
+     * Task to find the outcasts of lists [from, to)
+     */
+    private final class ListsTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String[][] lists;
+        private final String[] outcasts;
+        private final int from;
+        private final int to;
+
+        ListsTask(String[][] lists, String[] outcasts, int from, int to) {
+            this.lists = lists;
+            this.outcasts = outcasts;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new ListsTask(lists, outcasts, from, mid), new ListsTask(lists, outcasts, mid, to));
+                return;
             }
+            if (from == to) { return; }
+            String[] nouns = lists[from];
+            outcasts[from] = outcast(nouns, new RowsTask(nouns, 0, nouns.length).compute());
+        }
+    }
+
+    /**
+     * Task to find the distance sums of rows [from, to) of a list, splitting the rows in two halves of about the
+     * same number of pairs as long as there are enough pairs
+     */
+    private final class RowsTask extends RecursiveTask<int[]> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String[] nouns;
+        private final int from;
+        private final int to;
+
+        RowsTask(String[] nouns, int from, int to) {
+            this.nouns = nouns;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected int[] compute() {
+            long pairs = pairs(nouns.length, from, to);
+            if (to - from < 2 || pairs < MIN_PAIRS_TO_SPLIT) { return distanceSums(nouns, from, to); }
+
+            /* earlier rows hold more pairs, so move the split point until both halves are balanced */
+            int mid = from + 1;
+            while (mid < to - 1 && pairs(nouns.length, from, mid) * 2 < pairs) {
+                mid++;
+            }
+            RowsTask right = new RowsTask(nouns, mid, to);
+            ForkJoinTask<int[]> fork = right.fork();
+            int[] distances = new RowsTask(nouns, from, mid).compute();
+            int[] rest = fork.join();
+            for (int i = 0; i < distances.length; i++) {
+                distances[i] += rest[i];
+            }
+            return distances;
         }
-        return noun;
     }
 
     public static void main(String[] args) {
@@ -38,4 +205,4 @@ public final class Outcast {
             StdOut.println(args[t] + ": " + outcast.outcast(nouns));
         }
     }
-}
\ No newline at end of file
+}
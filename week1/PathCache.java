@@ -0,0 +1,139 @@
+package week1;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Size bounded cache of shortest ancestral paths between two nouns, keyed by the unordered noun pair
+ * <p>
+ * The length and the ancestor of an ancestral path do not depend on the order of the two nouns, so (a, b) and
+ * (b, a) share one entry holding both values, filled by a single search.
+ * <p>
+ * To keep threads from queueing on one lock the cache is split into segments chosen by the hash of the key. Each
+ * segment is a LinkedHashMap in access order guarded by its own lock, evicting its least recently used entry once it
+ * holds more than its share of the capacity.
+ */
+final class PathCache {
+
+    private static final int MAX_SEGMENTS = 16;
+
+    private final Segment[] segments;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Constructor to create a cache holding at most the given number of noun pairs
+     *
+     * @param capacity
+     */
+    PathCache(int capacity) {
+        if (capacity <= 0) { throw new IllegalArgumentException("Cache capacity must be positive!"); }
+        int count = 1;
+        while (count < MAX_SEGMENTS && count * 2 <= capacity / MAX_SEGMENTS) {
+            count *= 2;
+        }
+        segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment(capacity / count + (i < capacity % count ? 1 : 0));
+        }
+    }
+
+    /**
+     * Returns the cached {length, ancestor} of the two nouns, null if the pair is not cached
+     *
+     * @param nounA
+     * @param nounB
+     */
+    int[] get(String nounA, String nounB) {
+        Key key = new Key(nounA, nounB);
+        Segment segment = segmentFor(key);
+        int[] path;
+        synchronized (segment) {
+            path = segment.get(key);
+        }
+        if (path == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return path;
+    }
+
+    /**
+     * Method to cache the {length, ancestor} of the two nouns
+     *
+     * @param nounA
+     * @param nounB
+     * @param path
+     */
+    void put(String nounA, String nounB, int[] path) {
+        Key key = new Key(nounA, nounB);
+        Segment segment = segmentFor(key);
+        synchronized (segment) {
+            segment.put(key, path);
+        }
+    }
+
+    long hits() {
+        return hits.sum();
+    }
+
+    long misses() {
+        return misses.sum();
+    }
+
+    private Segment segmentFor(Key key) {
+        int h = key.hashCode();
+        h ^= h >>> 16;
+        return segments[h & (segments.length - 1)];
+    }
+
+    /* LRU map of a part of the cache */
+    private static final class Segment extends LinkedHashMap<Key, int[]> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int capacity;
+
+        Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, int[]> eldest) {
+            return size() > capacity;
+        }
+    }
+
+    /* Unordered pair of nouns */
+    private static final class Key {
+
+        private final String first;
+        private final String second;
+
+        Key(String nounA, String nounB) {
+            if (nounA.compareTo(nounB) <= 0) {
+                first = nounA;
+                second = nounB;
+            } else {
+                first = nounB;
+                second = nounA;
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) { return true; }
+            if (!(o instanceof Key)) { return false; }
+            Key that = (Key) o;
+            return first.equals(that.first) && second.equals(that.second);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * first.hashCode() + second.hashCode();
+        }
+    }
+}
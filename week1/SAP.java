@@ -5,12 +5,19 @@ import edu.princeton.cs.algs4.In;
 import edu.princeton.cs.algs4.StdIn;
 import edu.princeton.cs.algs4.StdOut;
 
-import java.util.LinkedList;
-import java.util.Queue;
-
+/**
+ * Class to find shortest ancestral paths in a digraph
+ * <p>
+ * A SAP is safe to query from any number of threads at once. The graph is copied into an immutable compressed
+ * sparse row form shared by all threads, while every thread runs its queries on its own search engine holding the
+ * scratch state, so queries neither lock nor interfere with each other.
+ */
 public final class SAP {
 
-    private final Digraph G;
+    private final CompactDigraph G;
+    /* null when queries search the graph instead */
+    private final AncestorIndex index;
+    private final ThreadLocal<AncestralSearch> searches;
 
     /**
      * Public constructor to assign Digraph to get shortest common ancestor
@@ -18,134 +25,73 @@ public final class SAP {
      * @param G
      */
     public SAP(Digraph G) {
-        if (G == null) { throw new IllegalArgumentException(); }
-        this.G = new Digraph(G);
+        this(new CompactDigraph(nonNull(G)));
     }
 
     /**
-     * Method to get the shortest length between the two given vertices
+     * Constructor for a graph already in compressed form, which is immutable and therefore used without a copy
      *
-     * @param v
-     * @param w
+     * @param G
      */
-    public int length(int v, int w) {
-        if (v < 0 || w < 0 || v >= G.V() || w >= G.V()) { throw new IllegalArgumentException(); }
-        if (v == w) { return 0; }
-
-        return findAncestralPath(v, w)[0];
+    SAP(CompactDigraph G) {
+        this(G, null);
     }
 
     /**
-     * Method to find the shortest path between two given vertices
+     * Constructor for a directed acyclic graph in compressed form together with its ancestor index, answering all
+     * queries from the index. The index may be null, in which case the graph is searched
      *
-     * @param v
-     * @param w
+     * @param G
+     * @param index
      */
-    private int[] findAncestralPath(int v, int w) {
-        boolean[] vMarked = new boolean[G.V()];
-        boolean[] wMarked = new boolean[G.V()];
-        int[] vDistTo = new int[G.V()];
-        int[] wDistTo = new int[G.V()];
-
-        bfs(v, vMarked, vDistTo);
-        bfs(w, wMarked, wDistTo);
-
-        int commonAncestor = -1, minDistance = -1;
-        for (int i = 0; i < G.V(); i++) {
-            if (vMarked[i] && wMarked[i]) {
-                int distance = vDistTo[i] + wDistTo[i];
-                if (minDistance == -1) { minDistance = distance; }
-                if (distance <= minDistance) {
-                    commonAncestor = i;
-                    minDistance = distance;
-                }
-            }
-        }
+    SAP(CompactDigraph G, AncestorIndex index) {
+        this.G = G;
+        this.index = index;
+        this.searches = ThreadLocal.withInitial(() -> new AncestralSearch(this.G, this.index));
+    }
 
-        return new int[]{minDistance, commonAncestor};
+    private static Digraph nonNull(Digraph G) {
+        if (G == null) { throw new IllegalArgumentException(); }
+        return G;
     }
 
     /**
-     * Polymorph method for list of vertices
+     * Method to get the shortest length between the two given vertices
      *
      * @param v
      * @param w
      */
-    private int[] findAncestralPath(Iterable<Integer> v, Iterable<Integer> w) {
-        boolean[] vMarked = new boolean[G.V()];
-        boolean[] wMarked = new boolean[G.V()];
-        int[] vDistTo = new int[G.V()];
-        int[] wDistTo = new int[G.V()];
-
-        bfs(v, vMarked, vDistTo);
-        bfs(w, wMarked, wDistTo);
-
-        int commonAncestor = -1, minDistance = -1;
-        for (int i = 0; i < G.V(); i++) {
-            if (vMarked[i] && wMarked[i]) {
-                int distance = vDistTo[i] + wDistTo[i];
-                if (minDistance == -1) { minDistance = distance; }
-                if (distance <= minDistance) {
-                    commonAncestor = i;
-                    minDistance = distance;
-                }
-            }
-        }
+    public int length(int v, int w) {
+        if (v < 0 || w < 0 || v >= G.V() || w >= G.V()) { throw new IllegalArgumentException(); }
+        if (v == w) { return 0; }
 
-        return new int[]{minDistance, commonAncestor};
+        return findAncestralPath(v, w).length();
     }
 
     /**
-     * Utility method to traverse the graph to get the shortest path
+     * Method to find the shortest path between two given vertices
+     * The result is left in the search engine of the calling thread, so that answering a query does not allocate
+     * any memory
      *
      * @param v
-     * @param vMarked
-     * @param vDistTo
+     * @param w
      */
-    private void bfs(int v, boolean[] vMarked, int[] vDistTo) {
-        Queue<Integer> queue = new LinkedList<>();
-        queue.add(v);
-        vMarked[v] = true;
-        vDistTo[v] = 0;
-
-        while (!queue.isEmpty()) {
-            int elem = queue.poll();
-            for (int adj : G.adj(elem)) {
-                if (!vMarked[adj]) {
-                    queue.add(adj);
-                    vDistTo[adj] = vDistTo[elem] + 1;
-                    vMarked[adj] = true;
-                }
-            }
-        }
+    private AncestralSearch findAncestralPath(int v, int w) {
+        AncestralSearch search = searches.get();
+        search.search(v, w);
+        return search;
     }
 
     /**
-     * Polymorph method for iterables
+     * Polymorph method for list of vertices
      *
-     * @param vIterable
-     * @param vMarked
-     * @param vDistTo
+     * @param v
+     * @param w
      */
-    private void bfs(Iterable<Integer> vIterable, boolean[] vMarked, int[] vDistTo) {
-        Queue<Integer> queue = new LinkedList<>();
-        for (int v : vIterable) {
-            if (v < 0 || v >= G.V()) { throw new IllegalArgumentException(); }
-            queue.add(v);
-            vMarked[v] = true;
-            vDistTo[v] = 0;
-        }
-
-        while (!queue.isEmpty()) {
-            int elem = queue.poll();
-            for (int w : G.adj(elem)) {
-                if (!vMarked[w]) {
-                    queue.add(w);
-                    vMarked[w] = true;
-                    vDistTo[w] = vDistTo[elem] + 1;
-                }
-            }
-        }
+    private AncestralSearch findAncestralPath(Iterable<Integer> v, Iterable<Integer> w) {
+        AncestralSearch search = searches.get();
+        search.search(v, w);
+        return search;
     }
 
     /**
@@ -156,7 +102,7 @@ public final class SAP {
      */
     public int ancestor(int v, int w) {
         if (v < 0 || w < 0 || v >= G.V() || w >= G.V()) { throw new IllegalArgumentException(); }
-        return findAncestralPath(v, w)[1];
+        return findAncestralPath(v, w).ancestor();
     }
 
     /**
@@ -170,7 +116,7 @@ public final class SAP {
         v.forEach(elem -> { if (elem == null) { throw new IllegalArgumentException(); } });
         w.forEach(elem -> { if (elem == null) { throw new IllegalArgumentException(); } });
 
-        return findAncestralPath(v, w)[0];
+        return findAncestralPath(v, w).length();
     }
 
     /**
@@ -184,7 +130,73 @@ public final class SAP {
         v.forEach(elem -> { if (elem == null) { throw new IllegalArgumentException(); } });
         w.forEach(elem -> { if (elem == null) { throw new IllegalArgumentException(); } });
 
-        return findAncestralPath(v, w)[1];
+        return findAncestralPath(v, w).ancestor();
+    }
+
+    /**
+     * Polymorph method to get the shortest length between the vertices v[vFrom..vTo) and w[wFrom..wTo), which
+     * avoids boxing the vertices
+     *
+     * @param v
+     * @param vFrom
+     * @param vTo
+     * @param w
+     * @param wFrom
+     * @param wTo
+     */
+    int length(int[] v, int vFrom, int vTo, int[] w, int wFrom, int wTo) {
+        return findAncestralPath(v, vFrom, vTo, w, wFrom, wTo).length();
+    }
+
+    /**
+     * Polymorph method to get the common ancestor with shortest path between the vertices v[vFrom..vTo) and
+     * w[wFrom..wTo)
+     *
+     * @param v
+     * @param vFrom
+     * @param vTo
+     * @param w
+     * @param wFrom
+     * @param wTo
+     */
+    int ancestor(int[] v, int vFrom, int vTo, int[] w, int wFrom, int wTo) {
+        return findAncestralPath(v, vFrom, vTo, w, wFrom, wTo).ancestor();
+    }
+
+    /**
+     * Method to get both the length and the common ancestor of the shortest path between the vertices
+     * v[vFrom..vTo) and w[wFrom..wTo) from a single search, returned as {length, ancestor}
+     *
+     * @param v
+     * @param vFrom
+     * @param vTo
+     * @param w
+     * @param wFrom
+     * @param wTo
+     */
+    int[] ancestralPath(int[] v, int vFrom, int vTo, int[] w, int wFrom, int wTo) {
+        AncestralSearch search = findAncestralPath(v, vFrom, vTo, w, wFrom, wTo);
+        return new int[]{search.length(), search.ancestor()};
+    }
+
+    private AncestralSearch findAncestralPath(int[] v, int vFrom, int vTo, int[] w, int wFrom, int wTo) {
+        AncestralSearch search = searches.get();
+        search.search(v, vFrom, vTo, w, wFrom, wTo);
+        return search;
+    }
+
+    /**
+     * Returns the immutable graph queried
+     */
+    CompactDigraph graph() {
+        return G;
+    }
+
+    /**
+     * Returns the ancestor index answering the queries, null if the graph is searched
+     */
+    AncestorIndex index() {
+        return index;
     }
 
     public static void main(String[] args) {
@@ -194,9 +206,9 @@ public final class SAP {
         while (!StdIn.isEmpty()) {
             int v = StdIn.readInt();
             int w = StdIn.readInt();
-            int[] vals = sap.findAncestralPath(v, w);
-            int length = vals[0];
-            int ancestor = vals[1];
+            AncestralSearch search = sap.findAncestralPath(v, w);
+            int length = search.length();
+            int ancestor = search.ancestor();
             StdOut.printf("length = %d, ancestor = %d\n", length, ancestor);
         }
     }
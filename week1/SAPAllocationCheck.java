@@ -0,0 +1,86 @@
+package week1;
+
+import edu.princeton.cs.algs4.Digraph;
+import edu.princeton.cs.algs4.StdOut;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+/**
+ * Check that SAP queries on single vertices allocate no memory once the search engine of the thread exists
+ * <p>
+ * A random rooted DAG is built and queried until the JIT has compiled the search, then the bytes allocated by the
+ * current thread over rounds of many more queries are read from the ThreadMXBean of the JVM, which has to support
+ * it. A late compilation may still allocate a few bytes in some round, so the check passes if any round allocates
+ * nothing, while an allocation in the search itself shows up in every round.
+ */
+final class SAPAllocationCheck {
+
+    private SAPAllocationCheck() { }
+
+    /**
+     * Method to build a DAG of the given number of vertices in which every vertex but 0 has one to three hypernyms
+     * with smaller ids, so that vertex 0 is the root
+     *
+     * @param V
+     * @param random
+     */
+    private static Digraph randomDag(int V, Random random) {
+        Digraph G = new Digraph(V);
+        for (int v = 1; v < V; v++) {
+            int hypernyms = 1 + random.nextInt(3);
+            for (int h = 0; h < hypernyms; h++) {
+                G.addEdge(v, random.nextInt(v));
+            }
+        }
+        return G;
+    }
+
+    /**
+     * Method to run the given number of random queries, returns a checksum of the answers so that the JIT cannot
+     * drop them
+     *
+     * @param sap
+     * @param queries
+     * @param V
+     * @param random
+     */
+    private static long query(SAP sap, int queries, int V, Random random) {
+        long sum = 0;
+        for (int q = 0; q < queries; q++) {
+            int v = random.nextInt(V);
+            int w = random.nextInt(V);
+            sum += sap.length(v, w) + sap.ancestor(v, w);
+        }
+        return sum;
+    }
+
+    /**
+     * Takes the number of vertices and of queries per round as optional arguments, and exits with status 1 if every
+     * round allocated memory
+     *
+     * @param args
+     */
+    public static void main(String[] args) {
+        int V = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 100000;
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+
+        SAP sap = new SAP(randomDag(V, new Random(1)));
+        long checksum = query(sap, queries, V, new Random(2));
+        long fewest = Long.MAX_VALUE;
+        for (int round = 0; round < 3; round++) {
+            /* the Random of the measured queries is created before the count starts */
+            Random random = new Random(3 + round);
+            long before = threads.getThreadAllocatedBytes(thread);
+            checksum += query(sap, queries, V, random);
+            long allocated = threads.getThreadAllocatedBytes(thread) - before;
+            StdOut.printf("%d queries on %d vertices allocated %d bytes\n", 2 * queries, V, allocated);
+            fewest = Math.min(fewest, allocated);
+        }
+        StdOut.println("checksum " + checksum);
+        if (fewest > 0) { System.exit(1); }
+    }
+}
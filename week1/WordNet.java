@@ -1,20 +1,30 @@
 package week1;
 
-import edu.princeton.cs.algs4.Digraph;
-import edu.princeton.cs.algs4.DirectedCycle;
-import edu.princeton.cs.algs4.In;
 import edu.princeton.cs.algs4.StdOut;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
 
+/**
+ * Class to find relationships between nouns of the WordNet lexical database
+ * <p>
+ * Once constructed a WordNet is never modified, and the underlying SAP gives each thread its own search state, so a
+ * single instance can answer distance and sap queries from many threads concurrently without any locking.
+ * <p>
+ * Optionally the results of distance and sap can be kept in a size bounded LRU cache of noun pairs, which pays off
+ * when the same pairs are queried over and over. The cache is thread safe as well and a cached answer is always
+ * identical to the computed one.
+ * <p>
+ * As the hypernym graph is shallow, the ancestors of every synset with their distances can also be precomputed at
+ * construction time, answering every query by merging two short sorted lists rather than searching the graph.
+ * <p>
+ * A built WordNet can be saved to a binary snapshot, from which it is loaded again without parsing the text files
+ * or checking the graph for cycles.
+ */
 public final class WordNet {
 
-    private final Map<String, List<Integer>> synsetNounMap;
-    private final Map<Integer, String> synsetMap;
+    private final NounDictionary dictionary;
     private final SAP sap;
+    /* null when results are not cached */
+    private final PathCache cache;
 
     /**
      * This is the crux of this class.
@@ -22,11 +32,10 @@ public final class WordNet {
      * nouns, and their hypernym relationships
      * Each input is read line-by-line and their values are stored into the data variables of the class for easy
      * retrievals.
-     * Synsets are stored in two variables - synsetNounMap and synsetMap. The names are confusing and should be updated.
-     * synsetNounMap contains all the list of synsetIds for a given particular noun. the synsets input file has for
-     * some cases, multiple nouns given for one synsetId (separated by space). At the same time, a noun can also have
-     * multiple synsetIds. Its a many-to-many relationship.
-     * synsetMap is a simpler data structure containing all the nouns for a given synsetId
+     * Synsets are stored in a NounDictionary, which gives every noun an int id and keeps both directions of the
+     * relationship in flat arrays: the list of synsetIds for a given particular noun, and the nouns for a given
+     * synsetId. The synsets input file has for some cases, multiple nouns given for one synsetId (separated by
+     * space). At the same time, a noun can also have multiple synsetIds. Its a many-to-many relationship.
      * <p>
      * The hypernyms input is graph of synsetIds, giving the relevant information of hypernyms of each synsetId. The
      * data is constructed in a form of directed graph
@@ -35,91 +44,162 @@ public final class WordNet {
      * @param hypernyms
      */
     public WordNet(String synsets, String hypernyms) {
+        this(synsets, hypernyms, 0);
+    }
+
+    /**
+     * Public constructor of WordNet which additionally caches the results of distance and sap for up to
+     * cacheCapacity noun pairs, evicting the least recently used pairs first. A capacity of 0 disables the cache.
+     *
+     * @param synsets
+     * @param hypernyms
+     * @param cacheCapacity
+     */
+    public WordNet(String synsets, String hypernyms, int cacheCapacity) {
+        this(synsets, hypernyms, cacheCapacity, false);
+    }
+
+    /**
+     * Public constructor of WordNet which can additionally build an index of the ancestors of every synset with
+     * their distances, so that distance and sap no longer search the hypernym graph. Building the index costs time
+     * and memory proportional to the total number of (synset, ancestor) pairs.
+     *
+     * @param synsets
+     * @param hypernyms
+     * @param cacheCapacity
+     * @param indexAncestors
+     */
+    public WordNet(String synsets, String hypernyms, int cacheCapacity, boolean indexAncestors) {
         if (synsets == null || hypernyms == null) {
             throw new IllegalArgumentException("Input parameters cannot be null!");
         }
-        synsetNounMap = new HashMap<>();
-        synsetMap = new HashMap<>();
-        In synsetIn = new In(synsets);
-        String[] synsetLines = synsetIn.readAllLines();
-
-        for (String synsetLine : synsetLines) {
-            String[] arr = synsetLine.split(",");
-            if (arr.length < 2) { continue; }
-            int synsetId = Integer.parseInt(arr[0].trim());
-            if (synsetId >= synsetLines.length) { continue; }
-            String[] nouns = arr[1].split(" ");
-            for (String noun : nouns) {
-                List<Integer> list = synsetNounMap.get(noun);
-                if (list == null) {
-                    list = new ArrayList<>();
-                }
-                list.add(synsetId);
-                synsetNounMap.put(noun.trim(), list);
-            }
-            synsetMap.put(synsetId, arr[1].trim());
-        }
-        synsetIn.close();
-
-        In hypernymIn = new In(hypernyms);
-        String[] allLines = hypernymIn.readAllLines();
-        int maxVertex = -1;
-        for (String line : allLines) {
-            String[] arr = line.split(",");
-            for (String str : arr) {
-                int v = Integer.parseInt(str.trim());
-                if (v > maxVertex) {
-                    maxVertex = v;
-                }
-            }
-        }
-        if (allLines.length < maxVertex) { throw new IllegalArgumentException("Number of edges less than maxVertex"); }
-        Digraph hypernymGraph = new Digraph(maxVertex + 1);
-        for (String line : allLines) {
-            String[] arr = line.split(",");
-            if (arr.length < 2) { continue; }
-            int v = Integer.parseInt(arr[0].trim());
-            if (v > maxVertex) { continue; }
-            for (int i = 1; i < arr.length; i++) {
-                int w = Integer.parseInt(arr[i].trim());
-                if (w > maxVertex) { continue; }
-                hypernymGraph.addEdge(v, w);
-            }
-        }
-        hypernymIn.close();
-        DirectedCycle finder = new DirectedCycle(hypernymGraph);
-        if (finder.hasCycle()) { throw new IllegalArgumentException(); }
-        sap = new SAP(hypernymGraph);
+        if (cacheCapacity < 0) { throw new IllegalArgumentException("Cache capacity cannot be negative!"); }
+        dictionary = WordNetLoader.readSynsets(synsets);
+
+        CompactDigraph hypernymGraph = WordNetLoader.readHypernyms(hypernyms);
+        if (hypernymGraph.hasCycle()) { throw new IllegalArgumentException(); }
+        sap = new SAP(hypernymGraph, indexAncestors ? new AncestorIndex(hypernymGraph) : null);
+        cache = cacheCapacity == 0 ? null : new PathCache(cacheCapacity);
+    }
+
+    /**
+     * Constructor of a WordNet loaded from a snapshot
+     *
+     * @param dictionary
+     * @param sap
+     * @param cacheCapacity
+     */
+    WordNet(NounDictionary dictionary, SAP sap, int cacheCapacity) {
+        this.dictionary = dictionary;
+        this.sap = sap;
+        this.cache = cacheCapacity == 0 ? null : new PathCache(cacheCapacity);
+    }
+
+    /**
+     * Method to save this WordNet, including its ancestor index if it has one, to a binary snapshot file
+     *
+     * @param file
+     */
+    public void save(String file) {
+        if (file == null) { throw new IllegalArgumentException("Snapshot file cannot be null!"); }
+        WordNetSnapshot.write(file, dictionary, sap);
+    }
+
+    /**
+     * Method to load a WordNet from a snapshot file written by save
+     *
+     * @param file
+     */
+    public static WordNet load(String file) {
+        return load(file, 0);
+    }
+
+    /**
+     * Method to load a WordNet from a snapshot file written by save, caching the results of distance and sap for up
+     * to cacheCapacity noun pairs
+     *
+     * @param file
+     * @param cacheCapacity
+     */
+    public static WordNet load(String file, int cacheCapacity) {
+        if (file == null) { throw new IllegalArgumentException("Snapshot file cannot be null!"); }
+        if (cacheCapacity < 0) { throw new IllegalArgumentException("Cache capacity cannot be negative!"); }
+        return WordNetSnapshot.read(file, cacheCapacity);
     }
 
     public Iterable<String> nouns() {
-        return synsetNounMap.keySet();
+        return dictionary.nouns();
     }
 
     public boolean isNoun(String word) {
         if (word == null) { throw new IllegalArgumentException(); }
-        return synsetNounMap.containsKey(word);
+        return dictionary.find(word) >= 0;
     }
 
     public int distance(String nounA, String nounB) {
         if (nounA == null || nounB == null) {
             throw new IllegalArgumentException("Input parameters to find distance cannot be null!");
         }
-        if (!isNoun(nounA) || !isNoun(nounB)) {
+        int a = dictionary.find(nounA);
+        int b = dictionary.find(nounB);
+        if (a < 0 || b < 0) {
             throw new IllegalArgumentException("Input parameters must be valid nouns to calculate distance!");
         }
-        return sap.length(synsetNounMap.get(nounA), synsetNounMap.get(nounB));
+        if (cache == null) {
+            return sap.length(dictionary.synsetIds(), dictionary.synsetsBegin(a), dictionary.synsetsEnd(a),
+                    dictionary.synsetIds(), dictionary.synsetsBegin(b), dictionary.synsetsEnd(b));
+        }
+        return ancestralPath(nounA, a, nounB, b)[0];
     }
 
     public String sap(String nounA, String nounB) {
         if (nounA == null || nounB == null) {
             throw new IllegalArgumentException("Input parameters to find distance cannot be null!");
         }
-        if (!isNoun(nounA) || !isNoun(nounB)) {
+        int a = dictionary.find(nounA);
+        int b = dictionary.find(nounB);
+        if (a < 0 || b < 0) {
             throw new IllegalArgumentException("Input parameters must be valid nouns to calculate distance!");
         }
-        int ancestor = sap.ancestor(synsetNounMap.get(nounA), synsetNounMap.get(nounB));
-        return synsetMap.get(ancestor);
+        int ancestor = cache == null
+                ? sap.ancestor(dictionary.synsetIds(), dictionary.synsetsBegin(a), dictionary.synsetsEnd(a),
+                        dictionary.synsetIds(), dictionary.synsetsBegin(b), dictionary.synsetsEnd(b))
+                : ancestralPath(nounA, a, nounB, b)[1];
+        return dictionary.synset(ancestor);
+    }
+
+    /**
+     * Method to get {length, ancestor} of the shortest ancestral path between two nouns, with ids a and b, from the
+     * cache, computing and caching it on a miss
+     *
+     * @param nounA
+     * @param a
+     * @param nounB
+     * @param b
+     */
+    private int[] ancestralPath(String nounA, int a, String nounB, int b) {
+        int[] path = cache.get(nounA, nounB);
+        if (path == null) {
+            path = sap.ancestralPath(dictionary.synsetIds(), dictionary.synsetsBegin(a), dictionary.synsetsEnd(a),
+                    dictionary.synsetIds(), dictionary.synsetsBegin(b), dictionary.synsetsEnd(b));
+            cache.put(nounA, nounB, path);
+        }
+        return path;
+    }
+
+    /**
+     * Returns the number of distance and sap calls answered from the cache, 0 if results are not cached
+     */
+    public long cacheHits() {
+        return cache == null ? 0 : cache.hits();
+    }
+
+    /**
+     * Returns the number of distance and sap calls which had to be computed despite the cache, 0 if results are not
+     * cached
+     */
+    public long cacheMisses() {
+        return cache == null ? 0 : cache.misses();
     }
 
     public static void main(String[] args) {
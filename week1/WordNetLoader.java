@@ -0,0 +1,231 @@
+package week1;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+/**
+ * Class to read the synsets and hypernyms files of WordNet in a single streaming pass each
+ * <p>
+ * The files are read in blocks of bytes into a reusable line buffer and parsed in place: ids are accumulated digit
+ * by digit and only the nouns themselves are turned into Strings, which are interned into a NounDictionary. Neither
+ * file is ever held in memory as a whole, and no regex split or temporary array is created per line. Hypernym edges
+ * go straight into growable int arrays from which the compressed graph is built.
+ * <p>
+ * Like algs4 In, a name is opened as a file if it exists, otherwise as a classpath resource or as a URL.
+ */
+final class WordNetLoader {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final InputStream in;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    /* bytes of the current line, without its line terminator */
+    private byte[] line = new byte[256];
+    private int length;
+    /* number of lines read so far */
+    private int lines;
+
+    private WordNetLoader(String name) {
+        try {
+            in = open(name);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Could not open " + name, e);
+        }
+    }
+
+    /**
+     * Method to read a synsets file into a dictionary of its nouns and synsets
+     *
+     * @param name
+     */
+    static NounDictionary readSynsets(String name) {
+        WordNetLoader loader = new WordNetLoader(name);
+        NounDictionary.Builder builder = new NounDictionary.Builder();
+        try {
+            while (loader.nextLine()) {
+                byte[] line = loader.line;
+                int firstComma = loader.indexOf(',', 0);
+                if (firstComma < 0) { continue; }
+                int nounsEnd = loader.indexOf(',', firstComma + 1);
+                if (nounsEnd < 0) { nounsEnd = loader.length; }
+                int begin = skipSpaces(line, firstComma + 1, nounsEnd);
+                int end = trimSpaces(line, begin, nounsEnd);
+                if (begin == end) { continue; }
+
+                int synsetId = parseInt(line, 0, firstComma);
+                int tokenBegin = begin;
+                for (int i = begin; i <= end; i++) {
+                    if (i < end && line[i] != ' ') { continue; }
+                    if (i > tokenBegin) {
+                        builder.addNoun(new String(line, tokenBegin, i - tokenBegin, StandardCharsets.UTF_8).trim(),
+                                synsetId);
+                    }
+                    tokenBegin = i + 1;
+                }
+                builder.addSynset(synsetId, new String(line, begin, end - begin, StandardCharsets.UTF_8));
+            }
+        } finally {
+            loader.close();
+        }
+        return builder.build(loader.lines);
+    }
+
+    /**
+     * Method to read a hypernyms file into a compressed digraph with an edge from each synset id to each of its
+     * hypernyms
+     *
+     * @param name
+     */
+    static CompactDigraph readHypernyms(String name) {
+        WordNetLoader loader = new WordNetLoader(name);
+        int[] from = new int[1024];
+        int[] to = new int[1024];
+        int E = 0, maxVertex = -1;
+        try {
+            while (loader.nextLine()) {
+                int comma = loader.indexOf(',', 0);
+                int fieldEnd = comma < 0 ? loader.length : comma;
+                int v = parseInt(loader.line, 0, fieldEnd);
+                maxVertex = Math.max(maxVertex, v);
+                while (comma >= 0) {
+                    int next = loader.indexOf(',', comma + 1);
+                    fieldEnd = next < 0 ? loader.length : next;
+                    int w = parseInt(loader.line, comma + 1, fieldEnd);
+                    maxVertex = Math.max(maxVertex, w);
+                    if (E == from.length) {
+                        from = Arrays.copyOf(from, E * 2);
+                        to = Arrays.copyOf(to, E * 2);
+                    }
+                    from[E] = v;
+                    to[E++] = w;
+                    comma = next;
+                }
+            }
+        } finally {
+            loader.close();
+        }
+        if (loader.lines < maxVertex) { throw new IllegalArgumentException("Number of edges less than maxVertex"); }
+        return new CompactDigraph(maxVertex + 1, from, to, E);
+    }
+
+    /**
+     * Method to parse a possibly space padded decimal integer from line[begin..end)
+     *
+     * @param line
+     * @param begin
+     * @param end
+     */
+    private static int parseInt(byte[] line, int begin, int end) {
+        begin = skipSpaces(line, begin, end);
+        end = trimSpaces(line, begin, end);
+        boolean negative = begin < end && line[begin] == '-';
+        int i = negative ? begin + 1 : begin;
+        if (i == end) { throw numberFormat(line, begin, end); }
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = line[i] - '0';
+            if (digit < 0 || digit > 9) { throw numberFormat(line, begin, end); }
+            value = value * 10 + digit;
+            if (value > Integer.MAX_VALUE + 1L) { throw numberFormat(line, begin, end); }
+        }
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE) { throw numberFormat(line, begin, end); }
+        return (int) value;
+    }
+
+    private static NumberFormatException numberFormat(byte[] line, int begin, int end) {
+        return new NumberFormatException(
+                "For input string: \"" + new String(line, begin, end - begin, StandardCharsets.UTF_8) + "\"");
+    }
+
+    private static int skipSpaces(byte[] line, int begin, int end) {
+        while (begin < end && (line[begin] & 0xFF) <= ' ') { begin++; }
+        return begin;
+    }
+
+    private static int trimSpaces(byte[] line, int begin, int end) {
+        while (end > begin && (line[end - 1] & 0xFF) <= ' ') { end--; }
+        return end;
+    }
+
+    /**
+     * Returns the position of the first given character in the current line at or after from, -1 if there is none
+     *
+     * @param c
+     * @param from
+     */
+    private int indexOf(char c, int from) {
+        for (int i = from; i < length; i++) {
+            if (line[i] == c) { return i; }
+        }
+        return -1;
+    }
+
+    /**
+     * Method to read the next line into the line buffer, returns false at the end of the input
+     * Lines end with \n, \r\n or \r, and a final line without terminator is only counted if it is not empty.
+     * Trailing commas are dropped from the line, just like String.split drops trailing empty fields
+     */
+    private boolean nextLine() {
+        length = 0;
+        boolean read = false;
+        while (true) {
+            if (position == limit && !fill()) { break; }
+            read = true;
+            byte b = buffer[position++];
+            if (b == '\n') { break; }
+            if (b == '\r') {
+                if (position < limit || fill()) {
+                    if (buffer[position] == '\n') { position++; }
+                }
+                break;
+            }
+            if (length == line.length) { line = Arrays.copyOf(line, length * 2); }
+            line[length++] = b;
+        }
+        while (length > 0 && line[length - 1] == ',') { length--; }
+        if (read) { lines++; }
+        return read;
+    }
+
+    private boolean fill() {
+        try {
+            int n = in.read(buffer, 0, buffer.length);
+            position = 0;
+            limit = Math.max(n, 0);
+            return n > 0;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Could not read input", e);
+        }
+    }
+
+    private void close() {
+        try {
+            in.close();
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Could not close input", e);
+        }
+    }
+
+    private static InputStream open(String name) throws IOException {
+        File file = new File(name);
+        if (file.exists()) { return Files.newInputStream(file.toPath()); }
+        URL url = WordNetLoader.class.getResource(name);
+        if (url == null) {
+            try {
+                url = new URL(name);
+            } catch (MalformedURLException e) {
+                throw new IOException("Could not open " + name, e);
+            }
+        }
+        return url.openStream();
+    }
+}
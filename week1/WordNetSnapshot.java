@@ -0,0 +1,238 @@
+package week1;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Class to save a fully built WordNet to a binary file and to load it back without parsing the text files
+ * <p>
+ * Layout of a snapshot, all numbers being big endian ints and chars, every array being preceded by its length:
+ * <pre>
+ *   MAGIC VERSION
+ *   offsets[] targets[]                                hypernym graph in compressed sparse row form
+ *   0 | 1 offsets[] ancestors[] distances[]            optional ancestor index
+ *   nounChars[] nounOffsets[] synsetOffsets[] synsetIds[] synsetChars[] synsetCharOffsets[]   noun dictionary
+ * </pre>
+ * Every part of a WordNet is a handful of primitive arrays, so a snapshot is read through a memory mapped buffer by
+ * copying the arrays out in bulk. The graph was checked to be acyclic when the WordNet was built from text, so
+ * loading does not check it again, but every length, offset and vertex id is checked against the file and the
+ * number of vertices before it is used, so that a truncated or corrupt snapshot is rejected like bad text input.
+ * <p>
+ * Version 1 stored the nouns as a map of Strings to lists of synset ids and is no longer supported.
+ */
+final class WordNetSnapshot {
+
+    private static final int MAGIC = 0x574E5350;
+    private static final int VERSION = 2;
+
+    private WordNetSnapshot() { }
+
+    /**
+     * Method to write the given WordNet data to a snapshot file
+     *
+     * @param file
+     * @param dictionary
+     * @param sap
+     */
+    static void write(String file, NounDictionary dictionary, SAP sap) {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(Paths.get(file)), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+
+            CompactDigraph G = sap.graph();
+            int[] offsets = new int[G.V() + 1];
+            int[] targets = new int[G.E()];
+            for (int v = 0; v < G.V(); v++) {
+                for (int i = G.begin(v); i < G.end(v); i++) {
+                    targets[i] = G.target(i);
+                }
+                offsets[v + 1] = G.end(v);
+            }
+            writeInts(out, offsets);
+            writeInts(out, targets);
+
+            AncestorIndex index = sap.index();
+            out.writeInt(index == null ? 0 : 1);
+            if (index != null) {
+                int[] indexOffsets = new int[G.V() + 1];
+                for (int v = 0; v < G.V(); v++) {
+                    indexOffsets[v + 1] = indexOffsets[v] + index.end(v) - index.begin(v);
+                }
+                int[] ancestors = new int[indexOffsets[G.V()]];
+                int[] distances = new int[ancestors.length];
+                for (int v = 0; v < G.V(); v++) {
+                    for (int i = index.begin(v), j = indexOffsets[v]; i < index.end(v); i++, j++) {
+                        ancestors[j] = index.ancestor(i);
+                        distances[j] = index.distance(i);
+                    }
+                }
+                writeInts(out, indexOffsets);
+                writeInts(out, ancestors);
+                writeInts(out, distances);
+            }
+
+            writeChars(out, dictionary.nounChars());
+            writeInts(out, dictionary.nounOffsets());
+            writeInts(out, dictionary.synsetOffsets());
+            writeInts(out, dictionary.synsetIds());
+            writeChars(out, dictionary.synsetChars());
+            writeInts(out, dictionary.synsetCharOffsets());
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Could not write snapshot " + file, e);
+        }
+    }
+
+    /**
+     * Method to read a WordNet from a snapshot file, caching the results of distance and sap for up to
+     * cacheCapacity noun pairs
+     *
+     * @param file
+     * @param cacheCapacity
+     */
+    static WordNet read(String file, int cacheCapacity) {
+        ByteBuffer in = map(file);
+        if (in.remaining() < 8 || in.getInt() != MAGIC) {
+            throw new IllegalArgumentException(file + " is not a WordNet snapshot");
+        }
+        int version = in.getInt();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported WordNet snapshot version " + version);
+        }
+
+        try {
+            int[] offsets = readInts(in, -1);
+            int V = offsets.length - 1;
+            int[] targets = readInts(in, -1);
+            if (!isOffsets(offsets, targets.length) || !isBelow(targets, V)) { throw corrupt(file); }
+            CompactDigraph G = new CompactDigraph(offsets, targets);
+
+            AncestorIndex index = null;
+            int indexed = in.getInt();
+            if (indexed != 0 && indexed != 1) { throw corrupt(file); }
+            if (indexed == 1) {
+                int[] indexOffsets = readInts(in, V + 1);
+                int[] ancestors = readInts(in, -1);
+                int[] distances = readInts(in, ancestors.length);
+                if (!isOffsets(indexOffsets, ancestors.length) || !isBelow(ancestors, V) || !isBelow(distances, V)) {
+                    throw corrupt(file);
+                }
+                index = new AncestorIndex(indexOffsets, ancestors, distances);
+            }
+
+            char[] nounChars = readChars(in);
+            int[] nounOffsets = readInts(in, -1);
+            int[] synsetOffsets = readInts(in, nounOffsets.length);
+            int[] synsetIds = readInts(in, -1);
+            char[] synsetChars = readChars(in);
+            int[] synsetCharOffsets = readInts(in, -1);
+            if (!isOffsets(nounOffsets, nounChars.length) || !isOffsets(synsetOffsets, synsetIds.length)
+                    || !isBelow(synsetIds, V) || synsetCharOffsets.length > V + 1
+                    || !isOffsets(synsetCharOffsets, synsetChars.length)) {
+                throw corrupt(file);
+            }
+            NounDictionary dictionary = new NounDictionary(nounChars, nounOffsets, synsetOffsets, synsetIds,
+                    synsetChars, synsetCharOffsets);
+            return new WordNet(dictionary, new SAP(G, index), cacheCapacity);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Corrupt snapshot " + file, e);
+        }
+    }
+
+    private static IllegalArgumentException corrupt(String file) {
+        return new IllegalArgumentException("Corrupt snapshot " + file);
+    }
+
+    /**
+     * Returns true if the given offsets start at 0, never decrease and end at the given length
+     *
+     * @param offsets
+     * @param length
+     */
+    private static boolean isOffsets(int[] offsets, int length) {
+        if (offsets.length == 0 || offsets[0] != 0 || offsets[offsets.length - 1] != length) { return false; }
+        for (int i = 1; i < offsets.length; i++) {
+            if (offsets[i] < offsets[i - 1]) { return false; }
+        }
+        return true;
+    }
+
+    /**
+     * Returns true if all given values are at least 0 and less than the given bound
+     *
+     * @param values
+     * @param bound
+     */
+    private static boolean isBelow(int[] values, int bound) {
+        for (int value : values) {
+            if (value < 0 || value >= bound) { return false; }
+        }
+        return true;
+    }
+
+    /**
+     * Method to map a whole snapshot file into memory
+     *
+     * @param file
+     */
+    private static MappedByteBuffer map(String file) {
+        try (FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) { throw new IllegalArgumentException(file + " is too large"); }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Could not read snapshot " + file, e);
+        }
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        out.writeInt(values.length);
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    private static void writeChars(DataOutputStream out, char[] values) throws IOException {
+        out.writeInt(values.length);
+        for (char value : values) {
+            out.writeChar(value);
+        }
+    }
+
+    /**
+     * Method to read an array of ints preceded by its length, which must be the given one unless that is -1. A length
+     * which is negative, or longer than what is left in the file, is reported as the file ending too early
+     *
+     * @param in
+     * @param length
+     */
+    private static int[] readInts(ByteBuffer in, int length) {
+        int n = in.getInt();
+        if (n < 0 || n > in.remaining() / 4 || (length >= 0 && n != length)) { throw new BufferUnderflowException(); }
+        int[] values = new int[n];
+        in.asIntBuffer().get(values);
+        in.position(in.position() + 4 * values.length);
+        return values;
+    }
+
+    /**
+     * Method to read an array of chars preceded by its length, checked like the length of an array of ints
+     *
+     * @param in
+     */
+    private static char[] readChars(ByteBuffer in) {
+        int n = in.getInt();
+        if (n < 0 || n > in.remaining() / 2) { throw new BufferUnderflowException(); }
+        char[] values = new char[n];
+        in.asCharBuffer().get(values);
+        in.position(in.position() + 2 * values.length);
+        return values;
+    }
+}
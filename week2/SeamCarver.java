@@ -1,30 +1,176 @@
 import edu.princeton.cs.algs4.Picture;
 
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
 /**
  * Class to provide methods to resize any given image while preserving the content of the picture
+ * <p>
+ * The energy of every pixel is kept in a matrix which lives as long as the carver. The energy of a pixel only
+ * depends on its four neighbours, so removing a seam only changes the energy of the pixels next to it: after a
+ * removal the matrix is shifted like the pixels and only those pixels are recomputed, which costs O(height) for a
+ * vertical seam and O(width) for a horizontal one instead of recomputing the whole picture for every seam search.
+ * <p>
+ * Pixels and energies are stored in flat row-major arrays together with an orientation flag. When the flag is set
+ * the arrays hold the transposed picture, whose rows are the columns of the picture, so that a horizontal seam of
+ * the picture is a vertical seam of the arrays. Seams are always found and removed row by row with unit stride,
+ * and the arrays are only transposed when the direction of the seams changes. The energy is symmetric in x and y,
+ * so the energies stay valid across a transposition.
+ * <p>
+ * The arrays keep the size of the original picture: row r starts at r * stride and only its first columns() entries
+ * are pixels of the current picture. A seam is removed in place by shifting the rest of each row one to the left,
+ * and a transposition writes into a second pair of arrays allocated once, so removing seams allocates nothing
+ * proportional to the size of the picture. The Picture itself is only built when picture() is called.
+ * <p>
+ * Seams are inserted by planning them all on the picture before any is inserted: they are removed from a copy of
+ * the arrays, in batches like removeVerticalSeams does, remembering the column every removed pixel had in the
+ * picture. Every row is then widened once, in place, with a new pixel after each planned pixel. The arrays only grow
+ * when the enlarged picture no longer fits in them.
+ * <p>
+ * A carver created with a fork/join pool computes the initial energies and finds seams in parallel. Every distance
+ * of a row only depends on the previous row, so the seam search advances row by row like a wavefront and splits
+ * each row into chunks of at least minChunk columns. Every pixel picks its parent on its own, so the seam found is
+ * exactly the one found sequentially. Rows narrower than two chunks are done by the calling thread.
+ * <p>
+ * Energies are computed in int arithmetic: the squared gradients of 8 bit channels are small integers, so their sum
+ * is exact and its square root is bit for bit the value computed with Math.pow in doubles. The energies of whole
+ * rows are computed from rows unpacked into separate red, green and blue int planes, in short branch free loops
+ * over plain arrays - the horizontal gradients, the vertical gradients and the square roots - which the JIT can
+ * compile to SIMD instructions.
  */
 public class SeamCarver {
 
-    private static final double BORDER_ENERGY = 1000.0;
+    static final double BORDER_ENERGY = 1000.0;
+    /* side of the square blocks the arrays are transposed by, so that both arrays stay in cache */
+    private static final int TRANSPOSE_BLOCK = 32;
+    /* largest number of seams resize removes in one direction before it may switch to the other */
+    private static final int RESIZE_RUN = 16;
+    /* largest number of pixels a picture may grow to, the largest array length every JVM allows */
+    private static final int MAX_PIXELS = Integer.MAX_VALUE - 8;
 
+    /* null when it has to be built again from the arrays */
     private Picture picture;
-    /* data variable to store rgb values for each pixel inside the picture */
-    private int[][] rgbMatrix;
+    private int width;
+    private int height;
+    /* true when the arrays below hold the transposed picture */
+    private boolean transposed;
+    /* distance between the starts of two rows of the arrays */
+    private int stride;
+    /* data variable to store rgb values for each pixel inside the picture, row by row */
+    private int[] rgb;
+    /* data variable to store the energy of each pixel, kept up to date across seam removals */
+    private double[] energies;
+    /* arrays a transposition writes into, swapped with the arrays above afterwards */
+    private int[] rgbBuffer;
+    private double[] energyBuffer;
+    /* seam search state, allocated on the first search and reused by all searches after it */
+    private int[] edgeTo;
+    private double[] distTo;
+    private double[] newDistTo;
+    /* pixels taken by the seams of the current findSeams call are stamped with its number */
+    private int[] taken;
+    private int takenStamp;
+    /* null when seams are found sequentially */
+    private final ForkJoinPool pool;
+    private final int minChunk;
 
     public SeamCarver(Picture picture) {
+        this(picture, null, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Constructor of a carver computing energies and finding seams on the given fork/join pool, splitting rows into
+     * chunks of at least minChunk pixels. A null pool does everything on the calling thread
+     *
+     * @param picture
+     * @param pool
+     * @param minChunk
+     */
+    public SeamCarver(Picture picture, ForkJoinPool pool, int minChunk) {
         if (picture == null) { throw new IllegalArgumentException("Picture input is null!"); }
+        if (minChunk < 1) { throw new IllegalArgumentException("Minimum chunk size must be positive!"); }
+        this.pool = pool;
+        this.minChunk = minChunk;
         this.picture = new Picture(picture);
-        rgbMatrix = new int[picture.width()][picture.height()];
-        getRGBMatrix();
+        width = picture.width();
+        height = picture.height();
+        stride = width;
+        rgb = new int[width * height];
+        getRGBMatrix(picture);
+        energies = calculateEnergy(new double[rgb.length]);
+    }
+
+    /**
+     * Constructor of a sequential carver working in the arrays of the given workspace, which must not be used by
+     * any other carver until this one is done. The picture object is only built when picture() is called
+     *
+     * @param picture
+     * @param workspace
+     */
+    SeamCarver(Picture picture, Workspace workspace) {
+        if (picture == null) { throw new IllegalArgumentException("Picture input is null!"); }
+        this.pool = null;
+        this.minChunk = Integer.MAX_VALUE;
+        width = picture.width();
+        height = picture.height();
+        stride = width;
+        workspace.ensureCapacity(width * height, Math.max(width, height));
+        rgb = workspace.rgb;
+        rgbBuffer = workspace.rgbBuffer;
+        energyBuffer = workspace.energyBuffer;
+        edgeTo = workspace.edgeTo;
+        distTo = workspace.distTo;
+        newDistTo = workspace.newDistTo;
+        getRGBMatrix(picture);
+        energies = calculateEnergy(workspace.energies);
+    }
+
+    /**
+     * Class holding the arrays of a carver so that they can be reused by the next carver, growing them to the
+     * largest picture seen
+     */
+    static final class Workspace {
+
+        private int[] rgb = new int[0];
+        private int[] rgbBuffer = new int[0];
+        private double[] energies = new double[0];
+        private double[] energyBuffer = new double[0];
+        private int[] edgeTo = new int[0];
+        private double[] distTo = new double[0];
+        private double[] newDistTo = new double[0];
+
+        /**
+         * Method to make sure the arrays hold pictures of the given number of pixels and longest side
+         *
+         * @param pixels
+         * @param side
+         */
+        void ensureCapacity(int pixels, int side) {
+            if (rgb.length < pixels) {
+                rgb = new int[pixels];
+                rgbBuffer = new int[pixels];
+                energies = new double[pixels];
+                energyBuffer = new double[pixels];
+                edgeTo = new int[pixels];
+            }
+            if (distTo.length < side) {
+                distTo = new double[side];
+                newDistTo = new double[side];
+            }
+        }
     }
 
     /**
      * Method to allocate rgb values to the matrix
+     *
+     * @param picture
      */
-    private void getRGBMatrix() {
-        for (int x = 0; x < width(); x++) {
-            for (int y = 0; y < height(); y++) {
-                rgbMatrix[x][y] = this.picture.getRGB(x, y);
+    private void getRGBMatrix(Picture picture) {
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                rgb[y * width + x] = picture.getRGB(x, y);
             }
         }
     }
@@ -33,23 +179,49 @@ public class SeamCarver {
      * Returns the width of image
      */
     public int width() {
-        return this.picture.width();
+        return width;
     }
 
     /**
      * Returns the height of image
      */
     public int height() {
-        return this.picture.height();
+        return height;
     }
 
     /**
      * Returns the picture object
      */
     public Picture picture() {
+        if (this.picture == null) { updatePicture(); }
         return new Picture(this.picture);
     }
 
+    /**
+     * Returns the picture object without copying it, for callers that drop the carver afterwards. The carver lets
+     * go of the picture, so later calls build a new one
+     */
+    Picture takePicture() {
+        if (this.picture == null) { updatePicture(); }
+        Picture picture = this.picture;
+        this.picture = null;
+        return picture;
+    }
+
+    /**
+     * Returns the number of rows of the arrays in their current orientation
+     */
+    private int rows() {
+        return transposed ? width : height;
+    }
+
+    /**
+     * Returns the number of columns of the arrays in their current orientation
+     */
+    private int columns() {
+        return transposed ? height : width;
+    }
+
     /**
      * Method to remove any given seam from the image width-wise
      * <p>
@@ -60,9 +232,9 @@ public class SeamCarver {
      * <p>
      * Algo:
      * seam is represented as {1, 0, 1, 2, 3}
-     * 1. the value of the pixel is changed to Integer max_val
-     * 2. create a new matrix removing those pixels with Integer max_val
-     * 3. create a new picture object with new width and height
+     * 1. transpose the arrays if needed, so that the seam removes one pixel from each row
+     * 2. shift the pixels right of the seam one to the left in each row
+     * 3. recompute the energy next to the seam, the picture object being rebuilt when it is asked for
      *
      * @param seam
      */
@@ -80,50 +252,12 @@ public class SeamCarver {
                 int nextY = seam[i - 1];
                 if (Math.abs(y - nextY) > 1) { throw new IllegalArgumentException("Adjacent y's differ more than 1"); }
             }
-            rgbMatrix[i][y] = Integer.MAX_VALUE;
-        }
-        rgbMatrix = arrayCopy(rgbMatrix, false);
-        updatePicture();
-    }
-
-    /**
-     * Method to create a new matrix by removing pixels with Integer max_val
-     *
-     * @param array
-     * @param vertical
-     */
-    private int[][] arrayCopy(int[][] array, boolean vertical) {
-        int[][] matrix =
-                vertical ? new int[array.length - 1][array[0].length] : new int[array.length][array[0].length - 1];
-        boolean[][] marked = new boolean[array.length][array[0].length];
-        for (int x = 0; x < matrix.length; x++) {
-            for (int y = 0; y < matrix[0].length; y++) {
-                if (!marked[x][y] && array[x][y] != Integer.MAX_VALUE) {
-                    matrix[x][y] = array[x][y];
-                } else if (vertical) {
-                    matrix[x][y] = array[x + 1][y];
-                    marked[x + 1][y] = true;
-                } else {
-                    matrix[x][y] = array[x][y + 1];
-                    marked[x][y + 1] = true;
-                }
-                marked[x][y] = true;
-            }
         }
-        return matrix;
-    }
-
-    /**
-     * Method to create a new picture with updated width and height
-     */
-    private void updatePicture() {
-        Picture newPic = new Picture(rgbMatrix.length, rgbMatrix[0].length);
-        for (int x = 0; x < rgbMatrix.length; x++) {
-            for (int y = 0; y < rgbMatrix[0].length; y++) {
-                newPic.setRGB(x, y, rgbMatrix[x][y]);
-            }
-        }
-        this.picture = newPic;
+        orient(true);
+        removeSeam(seam);
+        height--;
+        updateEnergy(seam);
+        this.picture = null;
     }
 
     /**
@@ -136,9 +270,9 @@ public class SeamCarver {
      * <p>
      * Algo:
      * seam is represented as {1, 0, 1, 2, 3}
-     * 1. the value of the pixel is changed to Integer max_val
-     * 2. create a new matrix removing those pixels with Integer max_val
-     * 3. create a new picture object with new width and height
+     * 1. transpose the arrays back if needed, so that the seam removes one pixel from each row
+     * 2. shift the pixels right of the seam one to the left in each row
+     * 3. recompute the energy next to the seam, the picture object being rebuilt when it is asked for
      *
      * @param seam
      */
@@ -156,236 +290,836 @@ public class SeamCarver {
                 int nextX = seam[i - 1];
                 if (Math.abs(x - nextX) > 1) { throw new IllegalArgumentException("Adjacent x's differ more than 1"); }
             }
-            rgbMatrix[x][i] = Integer.MAX_VALUE;
         }
-        rgbMatrix = arrayCopy(rgbMatrix, true);
-        updatePicture();
+        orient(false);
+        removeSeam(seam);
+        width--;
+        updateEnergy(seam);
+        this.picture = null;
     }
 
     /**
-     * Method to get seam array with minimum sum of energy
-     * The crux of the algo is relax mathod for each pixel which follows a topological sort idea to relax the energy
-     * of each pixel as we traverse the array
+     * Method to remove the pixel seam[r] of every row r of the current orientation, shifting the rest of the row
+     *
+     * @param seam
      */
-    public int[] findVerticalSeam() {
-        double[][] energy = calculateEnergy();
-
-        double[][] simulator = getSimulator();
-        int[][] edgeTo = new int[width()][height()];
-
-        for (int j = 0; j < simulator[0].length; j++) {
-            for (int i = 0; i < simulator.length; i++) {
-                relaxVerticalSeam(i, j, simulator, energy, edgeTo);
-            }
+    private void removeSeam(int[] seam) {
+        int columns = columns();
+        for (int r = 0; r < seam.length; r++) {
+            int c = r * stride + seam[r];
+            System.arraycopy(rgb, c + 1, rgb, c, columns - seam[r] - 1);
+            System.arraycopy(energies, c + 1, energies, c, columns - seam[r] - 1);
         }
+    }
 
-        double minEnergy = Double.POSITIVE_INFINITY;
-        int pos = -1;
-        int height = simulator[0].length - 1;
-        for (int x = 0; x < simulator.length; x++) {
-            if (minEnergy > simulator[x][height]) {
-                minEnergy = simulator[x][height];
-                pos = x;
+    /**
+     * Method to recompute the energy of the pixels whose neighbours changed when the given seam was removed
+     * <p>
+     * Algo: the pixels of row r left of seam[r] kept their place and the others moved one to the left. A pixel gets
+     * new horizontal neighbours only at seam[r] - 1 and seam[r], and new vertical neighbours only where the rows
+     * above or below were cut at another column, which is between seam[r - 1] and seam[r + 1]. So only the pixels
+     * from min(seam[r - 1..r + 1]) - 1 to max(seam[r - 1..r + 1]) are recomputed, at most four per row.
+     *
+     * @param seam
+     */
+    private void updateEnergy(int[] seam) {
+        int columns = columns();
+        for (int r = 0; r < seam.length; r++) {
+            int lo = seam[r], hi = seam[r];
+            if (r > 0) {
+                lo = Math.min(lo, seam[r - 1]);
+                hi = Math.max(hi, seam[r - 1]);
+            }
+            if (r < seam.length - 1) {
+                lo = Math.min(lo, seam[r + 1]);
+                hi = Math.max(hi, seam[r + 1]);
+            }
+            for (int c = Math.max(lo - 1, 0); c <= Math.min(hi, columns - 1); c++) {
+                energies[r * stride + c] = calculateEnergy(r, c);
             }
         }
-        return verticalSeam(edgeTo, pos);
     }
 
     /**
-     * Method to create a energy matrix for each pixel
+     * Method to create a new picture with updated width and height
      */
-    private double[][] calculateEnergy() {
-        double[][] energyMatrix = new double[width()][height()];
-        for (int x = 0; x < energyMatrix.length; x++) {
-            for (int y = 0; y < energyMatrix[0].length; y++) {
-                energyMatrix[x][y] = energy(x, y);
+    private void updatePicture() {
+        Picture newPic = new Picture(width, height);
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                newPic.setRGB(x, y, rgb[index(x, y)]);
             }
         }
-        return energyMatrix;
+        this.picture = newPic;
     }
 
     /**
-     * Method to get a simulator matrix with each pixel of energy positive infinity
+     * Method to bring the arrays into the given orientation, transposing them if they are not in it yet
+     *
+     * @param transposed
      */
-    private double[][] getSimulator() {
-        double[][] simulator = new double[width()][height()];
-
-        for (int i = 0; i < simulator.length; i++) {
-            for (int j = 0; j < simulator[i].length; j++) {
-                simulator[i][j] = Double.POSITIVE_INFINITY;
+    private void orient(boolean transposed) {
+        if (this.transposed == transposed) { return; }
+        int rows = rows();
+        int columns = columns();
+        if (rgbBuffer == null) {
+            rgbBuffer = new int[rgb.length];
+            energyBuffer = new double[energies.length];
+        }
+        for (int r0 = 0; r0 < rows; r0 += TRANSPOSE_BLOCK) {
+            for (int c0 = 0; c0 < columns; c0 += TRANSPOSE_BLOCK) {
+                int rEnd = Math.min(r0 + TRANSPOSE_BLOCK, rows);
+                int cEnd = Math.min(c0 + TRANSPOSE_BLOCK, columns);
+                for (int r = r0; r < rEnd; r++) {
+                    for (int c = c0; c < cEnd; c++) {
+                        rgbBuffer[c * rows + r] = rgb[r * stride + c];
+                        energyBuffer[c * rows + r] = energies[r * stride + c];
+                    }
+                }
             }
         }
-        return simulator;
+        int[] rgbSwap = rgb;
+        rgb = rgbBuffer;
+        rgbBuffer = rgbSwap;
+        double[] energySwap = energies;
+        energies = energyBuffer;
+        energyBuffer = energySwap;
+        stride = rows;
+        this.transposed = transposed;
     }
 
     /**
-     * Method to reduce the energy of adjoining pixels for given x, y
+     * Returns the position of pixel (x, y) of the picture in the arrays
      *
      * @param x
      * @param y
-     * @param simulator
-     * @param energy
-     * @param edgeTo
      */
-    private void relaxVerticalSeam(int x, int y, double[][] simulator, double[][] energy, int[][] edgeTo) {
-        if (y == 0) {
-            simulator[x][y] = energy[x][y];
-            edgeTo[x][y] = x;
-        }
-        if (withinLimits(x + 1, y + 1) && simulator[x + 1][y + 1] > simulator[x][y] + energy[x + 1][y + 1]) {
-            simulator[x + 1][y + 1] = simulator[x][y] + energy[x + 1][y + 1];
-            edgeTo[x + 1][y + 1] = x;
-        }
-        if (withinLimits(x, y + 1) && simulator[x][y + 1] > simulator[x][y] + energy[x][y + 1]) {
-            simulator[x][y + 1] = simulator[x][y] + energy[x][y + 1];
-            edgeTo[x][y + 1] = x;
+    private int index(int x, int y) {
+        return transposed ? x * stride + y : y * stride + x;
+    }
+
+    /**
+     * Method to get seam array with minimum sum of energy
+     */
+    public int[] findVerticalSeam() {
+        orient(false);
+        return findSeam();
+    }
+
+    /**
+     * Method to get seam array with minimum sum of energy
+     */
+    public int[] findHorizontalSeam() {
+        orient(true);
+        return findSeam();
+    }
+
+    /**
+     * Method to resize the image to the given width and height by removing seams
+     * <p>
+     * Check:
+     * 1. target width and height are at least 1
+     * 2. target width and height are not greater than the current ones
+     * <p>
+     * Algo:
+     * the two kinds of seams are interleaved in runs so that both sides shrink at about the same rate - a run of
+     * vertical seams is removed whenever the fraction of vertical seams removed so far is not greater than the
+     * fraction of horizontal ones, otherwise a run of horizontal seams. Runs are up to RESIZE_RUN seams long, so the
+     * arrays are transposed once per run instead of once per seam.
+     * The result is the same as calling findVerticalSeam and removeVerticalSeam, or findHorizontalSeam and
+     * removeHorizontalSeam, in that order, but seams found here are not validated again, the seam search state is
+     * reused between seams and the picture object is only rebuilt once, when it is asked for.
+     *
+     * @param targetWidth
+     * @param targetHeight
+     */
+    public void resize(int targetWidth, int targetHeight) {
+        if (targetWidth < 1 || targetHeight < 1) { throw new IllegalArgumentException("Target size less than 1!"); }
+        if (targetWidth > width() || targetHeight > height()) {
+            throw new IllegalArgumentException("Target size greater than picture size!");
         }
-        if (withinLimits(x - 1, y + 1) && simulator[x - 1][y + 1] > simulator[x][y] + energy[x - 1][y + 1]) {
-            simulator[x - 1][y + 1] = simulator[x][y] + energy[x - 1][y + 1];
-            edgeTo[x - 1][y + 1] = x;
+
+        int vertical = width() - targetWidth;
+        int horizontal = height() - targetHeight;
+        for (int v = 0, h = 0; v < vertical || h < horizontal; ) {
+            boolean removeVertical = h == horizontal || (v < vertical && (long) v * horizontal <= (long) h * vertical);
+            int run = Math.min(RESIZE_RUN, removeVertical ? vertical - v : horizontal - h);
+            orient(!removeVertical);
+            for (int i = 0; i < run; i++) {
+                int[] seam = findSeam();
+                removeSeam(seam);
+                if (removeVertical) {
+                    width--;
+                } else {
+                    height--;
+                }
+                updateEnergy(seam);
+            }
+            if (removeVertical) {
+                v += run;
+            } else {
+                h += run;
+            }
+            this.picture = null;
         }
     }
 
     /**
-     * Method to trace back the steps for minEnergy seam
+     * Method to get up to k vertical seams with low energy from a single seam search, which is much faster than k
+     * searches but only approximates the seams they would find. Seam i is given in the coordinates left by removing
+     * seams 0 to i - 1 with removeVerticalSeam, in that order
      *
-     * @param edgeTo
-     * @param pos
+     * @param k
      */
-    private int[] verticalSeam(int[][] edgeTo, int pos) {
-        int height = edgeTo[0].length;
-        int[] seam = new int[height];
-        while (height > 0) {
-            seam[height - 1] = pos;
-            pos = edgeTo[pos][height - 1];
-            height--;
-        }
-        return seam;
+    public int[][] findVerticalSeams(int k) {
+        if (k < 0) { throw new IllegalArgumentException("Number of seams cannot be negative!"); }
+        if (k == 0) { return new int[0][]; }
+        orient(false);
+        return findSeams(k);
     }
 
     /**
-     * Method to calculate the energy for a given pixel of picture
+     * Method to get up to k horizontal seams with low energy from a single seam search, which is much faster than k
+     * searches but only approximates the seams they would find. Seam i is given in the coordinates left by removing
+     * seams 0 to i - 1 with removeHorizontalSeam, in that order
      *
-     * @param x
-     * @param y
+     * @param k
      */
-    public double energy(int x, int y) {
-        if (x < 0 || x > width() - 1) { throw new IllegalArgumentException("X-axis outside range!"); }
-        if (y < 0 || y > height() - 1) { throw new IllegalArgumentException("Y-axis outside range!"); }
-        if (x == 0 || x == width() - 1) { return BORDER_ENERGY; }
-        if (y == 0 || y == height() - 1) { return BORDER_ENERGY; }
+    public int[][] findHorizontalSeams(int k) {
+        if (k < 0) { throw new IllegalArgumentException("Number of seams cannot be negative!"); }
+        if (k == 0) { return new int[0][]; }
+        orient(true);
+        return findSeams(k);
+    }
 
-        int argbXminusOne = rgbMatrix[x - 1][y];
-        int rXminusOne = (argbXminusOne >> 16) & 0xFF;
-        int gXminusOne = (argbXminusOne >> 8) & 0xFF;
-        int bXminusOne = (argbXminusOne) & 0xFF;
+    /**
+     * Method to remove k vertical seams with low energy, found k at a time by findVerticalSeams and removed together
+     *
+     * @param k
+     */
+    public void removeVerticalSeams(int k) {
+        if (k < 0 || k >= width()) { throw new IllegalArgumentException("Number of seams outside range!"); }
+        orient(false);
+        removeSeams(k, true);
+    }
 
-        int argbXplusOne = rgbMatrix[x + 1][y];
-        int rXplusOne = (argbXplusOne >> 16) & 0xFF;
-        int gXplusOne = (argbXplusOne >> 8) & 0xFF;
-        int bXplusOne = (argbXplusOne) & 0xFF;
-        double deltaX = Math.pow(rXplusOne - rXminusOne, 2) + Math.pow(gXplusOne - gXminusOne, 2) + Math
-                .pow(bXplusOne - bXminusOne, 2);
+    /**
+     * Method to remove k horizontal seams with low energy, found k at a time by findHorizontalSeams and removed
+     * together
+     *
+     * @param k
+     */
+    public void removeHorizontalSeams(int k) {
+        if (k < 0 || k >= height()) { throw new IllegalArgumentException("Number of seams outside range!"); }
+        orient(true);
+        removeSeams(k, false);
+    }
 
-        int argbYminusOne = rgbMatrix[x][y - 1];
-        int rYminusOne = (argbYminusOne >> 16) & 0xFF;
-        int gYminusOne = (argbYminusOne >> 8) & 0xFF;
-        int bYminusOne = (argbYminusOne) & 0xFF;
+    /**
+     * Method to widen the picture by k columns, duplicating the k vertical seams with the lowest energy
+     * <p>
+     * Algo: the k seams are the ones removeVerticalSeams would remove from the picture, found on a copy of the
+     * arrays, and a new pixel is inserted right of every pixel of those seams in a single pass, its colour being the
+     * average of the seam pixel and its right neighbour, both taken from the picture before the insertion. So the
+     * inserted pixels never duplicate each other. Widening by width() columns or more takes several rounds, each one
+     * planned on the picture widened by the rounds before it. The widened picture must fit in an array.
+     *
+     * @param k
+     */
+    public void insertVerticalSeams(int k) {
+        if (k < 0) { throw new IllegalArgumentException("Number of seams cannot be negative!"); }
+        if (((long) width + k) * height > MAX_PIXELS) {
+            throw new IllegalArgumentException("Number of seams too large!");
+        }
+        orient(false);
+        insertSeams(k, true);
+    }
 
-        int argbYplusOne = rgbMatrix[x][y + 1];
-        int rYplusOne = (argbYplusOne >> 16) & 0xFF;
-        int gYplusOne = (argbYplusOne >> 8) & 0xFF;
-        int bYplusOne = (argbYplusOne) & 0xFF;
-        double deltaY = Math.pow(rYplusOne - rYminusOne, 2) + Math.pow(gYplusOne - gYminusOne, 2) + Math
-                .pow(bYplusOne - bYminusOne, 2);
+    /**
+     * Method to heighten the picture by k rows, duplicating the k horizontal seams with the lowest energy, the same
+     * way as insertVerticalSeams
+     *
+     * @param k
+     */
+    public void insertHorizontalSeams(int k) {
+        if (k < 0) { throw new IllegalArgumentException("Number of seams cannot be negative!"); }
+        if (((long) height + k) * width > MAX_PIXELS) {
+            throw new IllegalArgumentException("Number of seams too large!");
+        }
+        orient(true);
+        insertSeams(k, false);
+    }
 
-        return Math.sqrt(deltaX + deltaY);
+    /**
+     * Method to insert k seams of the current orientation, all planned before the first one is inserted as long as
+     * k is less than the number of columns
+     *
+     * @param k
+     * @param vertical
+     */
+    private void insertSeams(int k, boolean vertical) {
+        while (k > 0) {
+            /* as many seams as there are columns take every pixel, which is seam i at column i shifted left by i */
+            int[][] seams = k < columns() ? planSeams(k, vertical) : new int[columns()][rows()];
+            insertSeams(seams);
+            if (vertical) {
+                width += seams.length;
+            } else {
+                height += seams.length;
+            }
+            energies = calculateEnergy(energies);
+            k -= seams.length;
+            this.picture = null;
+        }
     }
 
     /**
-     * Method to test if the given pixel is within the coordinates of picture
+     * Method to get the k seams of the current orientation that removing k seams in batches would remove, k being
+     * less than the number of columns, in the columns they have in the picture. They are given the way findSeams
+     * gives them: in every row the i-th smallest column, shifted left by i, belongs to seam i
+     * <p>
+     * Algo: the seams are removed from a copy of the arrays made in the transposition buffers, next to an array
+     * holding the column every pixel has in the picture, which is moved along with the pixels. The arrays of the
+     * picture are left as they are, and the copy becomes the transposition buffers again afterwards.
      *
-     * @param x
-     * @param y
+     * @param k
+     * @param vertical
      */
-    private boolean withinLimits(int x, int y) {
-        boolean xLimit = x >= 0 && x <= width() - 1;
-        boolean yLimit = y >= 0 && y <= height() - 1;
-        return xLimit && yLimit;
+    private int[][] planSeams(int k, boolean vertical) {
+        int rows = rows();
+        int pixels = rows * stride;
+        if (rgbBuffer == null || rgbBuffer.length < rgb.length) {
+            rgbBuffer = new int[rgb.length];
+            energyBuffer = new double[energies.length];
+        }
+        System.arraycopy(rgb, 0, rgbBuffer, 0, pixels);
+        System.arraycopy(energies, 0, energyBuffer, 0, pixels);
+        int[] rgbKept = rgb;
+        double[] energiesKept = energies;
+        rgb = rgbBuffer;
+        energies = energyBuffer;
+        int[] origin = new int[pixels];
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < stride; c++) {
+                origin[r * stride + c] = c;
+            }
+        }
+
+        int[][] columns = new int[rows][k];
+        int planned = 0;
+        while (planned < k) {
+            int[][] seams = findSeams(k - planned);
+            for (int r = 0; r < rows; r++) {
+                for (int i = 0; i < seams.length; i++) {
+                    columns[r][planned + i] = origin[r * stride + seams[i][r] + i];
+                }
+            }
+            removeSeams(seams, origin);
+            if (vertical) {
+                width -= seams.length;
+            } else {
+                height -= seams.length;
+            }
+            for (int[] seam : seams) {
+                updateEnergy(seam);
+            }
+            planned += seams.length;
+        }
+        if (vertical) {
+            width += k;
+        } else {
+            height += k;
+        }
+        rgbBuffer = rgb;
+        energyBuffer = energies;
+        rgb = rgbKept;
+        energies = energiesKept;
+
+        int[][] seams = new int[k][rows];
+        for (int r = 0; r < rows; r++) {
+            Arrays.sort(columns[r]);
+            for (int i = 0; i < k; i++) {
+                seams[i][r] = columns[r][i] - i;
+            }
+        }
+        return seams;
     }
 
     /**
-     * Method to get seam array with minimum sum of energy
-     * The crux of the algo is relax mathod for each pixel which follows a topological sort idea to relax the energy
-     * of each pixel as we traverse the array
+     * Method to insert a pixel right of every pixel of the given seams, given the way findSeams returns them, and
+     * to make the rows of the arrays one column wider per seam. The energies are left to be recomputed
+     * <p>
+     * Algo: seam i is shifted left by i, so seams[i][r] + i is its column in row r, and these columns increase with
+     * i. Every pixel moves right, so the rows are rewritten in place from the last one to the first and each row from
+     * right to left, writing the average of the seam pixel and its right neighbour after every seam pixel. Only when
+     * the wider rows do not fit in the arrays are they written into new arrays, at least half as large again.
+     *
+     * @param seams
      */
-    public int[] findHorizontalSeam() {
-        double[][] energy = calculateEnergy();
+    private void insertSeams(int[][] seams) {
+        int rows = rows();
+        int columns = columns();
+        int newStride = columns + seams.length;
+        int[] rgbTarget = rgb;
+        double[] energyTarget = energies;
+        if ((long) rows * newStride > rgb.length) {
+            /* only the growth is capped, the wider rows are known to fit since k was checked against MAX_PIXELS */
+            rgbTarget = new int[Math.max(rows * newStride, (int) Math.min(rgb.length * 3L / 2, MAX_PIXELS))];
+            energyTarget = new double[rgbTarget.length];
+        }
+        for (int r = rows - 1; r >= 0; r--) {
+            int row = r * stride;
+            int write = (r + 1) * newStride;
+            int end = columns;
+            for (int i = seams.length - 1; i >= 0; i--) {
+                int c = seams[i][r] + i;
+                int pixel = c + 1 < columns ? average(rgb[row + c], rgb[row + c + 1]) : rgb[row + c];
+                write -= end - c - 1;
+                System.arraycopy(rgb, row + c + 1, rgbTarget, write, end - c - 1);
+                rgbTarget[--write] = pixel;
+                end = c + 1;
+            }
+            System.arraycopy(rgb, row, rgbTarget, write - end, end);
+        }
+        stride = newStride;
 
-        double[][] simulator = getSimulator();
-        int[][] edgeTo = new int[width()][height()];
+        /* arrays sized for the smaller picture are allocated again when they are next needed */
+        if (rgbTarget != rgb) {
+            rgb = rgbTarget;
+            energies = energyTarget;
+            rgbBuffer = null;
+            energyBuffer = null;
+        }
+        if (edgeTo != null && (edgeTo.length < rgb.length || distTo.length < newStride)) { edgeTo = null; }
+        if (taken != null && taken.length < rgb.length) { taken = null; }
+    }
 
-        for (int i = 0; i < simulator.length; i++) {
-            for (int j = 0; j < simulator[i].length; j++) {
-                relaxHorizontalSeam(i, j, simulator, energy, edgeTo);
+    /**
+     * Method to remove k seams of the current orientation in batches found by single seam searches
+     *
+     * @param k
+     * @param vertical
+     */
+    private void removeSeams(int k, boolean vertical) {
+        while (k > 0) {
+            int[][] seams = findSeams(k);
+            removeSeams(seams, null);
+            if (vertical) {
+                width -= seams.length;
+            } else {
+                height -= seams.length;
             }
+            for (int[] seam : seams) {
+                updateEnergy(seam);
+            }
+            k -= seams.length;
+            this.picture = null;
         }
+    }
 
+    /**
+     * Method to get the column of every row of the top to bottom seam with minimum sum of energy in the current
+     * orientation
+     * <p>
+     * Algo: dynamic programming over the rows, which is a topological order of the pixels. The distance of a pixel
+     * is its energy plus the smallest distance of the three pixels above it, tried left to right and replaced only
+     * by a strictly smaller sum, so that ties are broken in the same way as by relaxing the pixels of each row from
+     * left to right. Only the distances of the previous row are kept.
+     */
+    private int[] findSeam() {
+        double[] distTo = relaxAll();
         double minEnergy = Double.POSITIVE_INFINITY;
         int pos = -1;
-        int width = simulator.length - 1;
-        for (int y = 0; y < simulator[0].length; y++) {
-            if (minEnergy > simulator[width][y]) {
-                minEnergy = simulator[width][y];
-                pos = y;
+        for (int c = 0; c < columns(); c++) {
+            if (minEnergy > distTo[c]) {
+                minEnergy = distTo[c];
+                pos = c;
             }
         }
+        return seam(rows(), columns(), pos);
+    }
 
-        return horizontalSeam(edgeTo, pos);
+    /**
+     * Method to fill edgeTo with the parent of every pixel of the current orientation, returns the distances of the
+     * last row
+     */
+    private double[] relaxAll() {
+        int rows = rows();
+        int columns = columns();
+        if (edgeTo == null) {
+            edgeTo = new int[rgb.length];
+            distTo = new double[Math.max(width, height)];
+            newDistTo = new double[distTo.length];
+        }
+        double[] distTo = this.distTo;
+        double[] newDistTo = this.newDistTo;
+
+        System.arraycopy(energies, 0, distTo, 0, columns);
+        boolean parallel = pool != null && columns >= 2 * minChunk;
+        for (int r = 1; r < rows; r++) {
+            if (parallel) {
+                pool.invoke(new RowTask(r, 0, columns, distTo, newDistTo, edgeTo));
+            } else {
+                relaxRow(r, 0, columns, distTo, newDistTo, edgeTo);
+            }
+            double[] swap = distTo;
+            distTo = newDistTo;
+            newDistTo = swap;
+        }
+        return distTo;
     }
 
     /**
-     * Method to reduce the energy of adjoining pixels for given x, y
+     * Method to get up to k seams with low energy from a single seam search in the current orientation
+     * <p>
+     * Algo: the ends of the seams in the last row are tried by increasing distance. From each end the seam is traced
+     * back through edgeTo as usual, but when the parent pixel is already taken by an earlier seam, the free pixel
+     * with the lowest energy among the three above is taken instead. A seam finding no free pixel above is given up
+     * and its pixels are freed again. Fewer than k seams are returned only if every end was tried.
+     * <p>
+     * The seams found never share a pixel, but may cross. In every row their columns are sorted and the i-th smallest
+     * is given to seam i, which keeps adjacent columns of a seam at most 1 apart. Seam i is then shifted left by i,
+     * so that the seams can be removed one after the other, each in the coordinates left by the ones before.
      *
-     * @param x
-     * @param y
-     * @param simulator
-     * @param energy
-     * @param edgeTo
+     * @param k
      */
-    private void relaxHorizontalSeam(int x, int y, double[][] simulator, double[][] energy, int[][] edgeTo) {
-        if (x == 0) {
-            simulator[x][y] = energy[x][y];
-            edgeTo[x][y] = y;
+    private int[][] findSeams(int k) {
+        int rows = rows();
+        int columns = columns();
+        double[] distTo = relaxAll();
+        if (taken == null) { taken = new int[rgb.length]; }
+        if (++takenStamp == 0) {
+            Arrays.fill(taken, 0);
+            takenStamp = 1;
         }
-        if (withinLimits(x + 1, y - 1) && simulator[x + 1][y - 1] > simulator[x][y] + energy[x + 1][y - 1]) {
-            simulator[x + 1][y - 1] = simulator[x][y] + energy[x + 1][y - 1];
-            edgeTo[x + 1][y - 1] = y;
+
+        k = Math.min(k, columns);
+        int[][] seams = new int[k][];
+        int found = 0;
+        /* ends by increasing distance, ties by increasing column since the sort is stable */
+        Integer[] ends = new Integer[columns];
+        for (int c = 0; c < columns; c++) {
+            ends[c] = c;
         }
-        if (withinLimits(x + 1, y) && simulator[x + 1][y] > simulator[x][y] + energy[x + 1][y]) {
-            simulator[x + 1][y] = simulator[x][y] + energy[x + 1][y];
-            edgeTo[x + 1][y] = y;
+        Arrays.sort(ends, Comparator.comparingDouble(c -> distTo[c]));
+        for (int attempt = 0; attempt < columns && found < k; attempt++) {
+            int end = ends[attempt];
+            if (taken[(rows - 1) * stride + end] == takenStamp) { continue; }
+            int[] seam = trace(end, rows, columns);
+            if (seam != null) { seams[found++] = seam; }
         }
-        if (withinLimits(x + 1, y + 1) && simulator[x + 1][y + 1] > simulator[x][y] + energy[x + 1][y + 1]) {
-            simulator[x + 1][y + 1] = simulator[x][y] + energy[x + 1][y + 1];
-            edgeTo[x + 1][y + 1] = y;
+
+        /* give the i-th smallest column of every row to seam i, shifted left by i */
+        int[] row = new int[found];
+        for (int r = 0; r < rows; r++) {
+            for (int i = 0; i < found; i++) {
+                row[i] = seams[i][r];
+            }
+            Arrays.sort(row);
+            for (int i = 0; i < found; i++) {
+                seams[i][r] = row[i] - i;
+            }
         }
+        return found == k ? seams : Arrays.copyOf(seams, found);
     }
 
     /**
-     * Method to trace back the steps for minEnergy seam
+     * Method to trace a seam back from column end of the last row, avoiding taken pixels, and take its pixels.
+     * Returns null, taking no pixel, if the seam runs into taken pixels only
      *
+     * @param end
+     * @param rows
+     * @param columns
+     */
+    private int[] trace(int end, int rows, int columns) {
+        int[] seam = new int[rows];
+        int c = end;
+        for (int r = rows - 1; r >= 0; r--) {
+            seam[r] = c;
+            taken[r * stride + c] = takenStamp;
+            if (r == 0) { break; }
+
+            int parent = edgeTo[r * columns + c];
+            int above = (r - 1) * stride;
+            if (taken[above + parent] == takenStamp) {
+                parent = -1;
+                for (int p = Math.max(c - 1, 0); p <= Math.min(c + 1, columns - 1); p++) {
+                    if (taken[above + p] == takenStamp) { continue; }
+                    if (parent < 0 || energies[above + p] < energies[above + parent]) { parent = p; }
+                }
+                if (parent < 0) {
+                    for (int i = r; i < rows; i++) {
+                        taken[i * stride + seam[i]] = 0;
+                    }
+                    return null;
+                }
+            }
+            c = parent;
+        }
+        return seam;
+    }
+
+    /**
+     * Method to remove the given seams together, seam i being in the coordinates left by removing seams 0 to i - 1
+     * one after the other, the way findSeams returns them. The given array laid out like the pixels, if not null, is
+     * shifted along with them
+     *
+     * @param seams
+     * @param origin
+     */
+    private void removeSeams(int[][] seams, int[] origin) {
+        int columns = columns();
+        for (int r = 0; r < rows(); r++) {
+            int row = r * stride;
+            int write = seams[0][r];
+            for (int i = 0; i < seams.length; i++) {
+                int from = seams[i][r] + i + 1;
+                int to = i + 1 < seams.length ? seams[i + 1][r] + i + 1 : columns;
+                System.arraycopy(rgb, row + from, rgb, row + write, to - from);
+                System.arraycopy(energies, row + from, energies, row + write, to - from);
+                if (origin != null) { System.arraycopy(origin, row + from, origin, row + write, to - from); }
+                write += to - from;
+            }
+        }
+    }
+
+    /**
+     * Method to compute the distances of columns [from, to) of row r from the distances of row r - 1
+     *
+     * @param r
+     * @param from
+     * @param to
+     * @param distTo
+     * @param newDistTo
      * @param edgeTo
+     */
+    private void relaxRow(int r, int from, int to, double[] distTo, double[] newDistTo, int[] edgeTo) {
+        int columns = columns();
+        int row = r * stride;
+        for (int c = from; c < to; c++) {
+            double energy = energies[row + c];
+            int parent = c > 0 ? c - 1 : c;
+            double min = distTo[parent] + energy;
+            for (int p = parent + 1; p <= c + 1 && p < columns; p++) {
+                double dist = distTo[p] + energy;
+                if (dist < min) {
+                    min = dist;
+                    parent = p;
+                }
+            }
+            newDistTo[c] = min;
+            edgeTo[r * columns + c] = parent;
+        }
+    }
+
+    /**
+     * Task to relax columns [from, to) of a row, splitting them in halves down to minChunk columns
+     */
+    private final class RowTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int r;
+        private final int from;
+        private final int to;
+        private final double[] distTo;
+        private final double[] newDistTo;
+        private final int[] edgeTo;
+
+        RowTask(int r, int from, int to, double[] distTo, double[] newDistTo, int[] edgeTo) {
+            this.r = r;
+            this.from = from;
+            this.to = to;
+            this.distTo = distTo;
+            this.newDistTo = newDistTo;
+            this.edgeTo = edgeTo;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from < 2 * minChunk) {
+                relaxRow(r, from, to, distTo, newDistTo, edgeTo);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new RowTask(r, from, mid, distTo, newDistTo, edgeTo),
+                    new RowTask(r, mid, to, distTo, newDistTo, edgeTo));
+        }
+    }
+
+    /**
+     * Method to trace back the steps for minEnergy seam
+     *
+     * @param rows
+     * @param columns
      * @param pos
      */
-    private int[] horizontalSeam(int[][] edgeTo, int pos) {
-        int width = edgeTo.length;
-        int[] seam = new int[width];
-        while (width > 0) {
-            seam[width - 1] = pos;
-            pos = edgeTo[width - 1][pos];
-            width--;
+    private int[] seam(int rows, int columns, int pos) {
+        int[] seam = new int[rows];
+        for (int r = rows - 1; r >= 0; r--) {
+            seam[r] = pos;
+            pos = edgeTo[r * columns + pos];
         }
         return seam;
     }
-}
\ No newline at end of file
+
+    /**
+     * Method to fill the given energy matrix with the energy of each pixel
+     *
+     * @param energyMatrix
+     */
+    private double[] calculateEnergy(double[] energyMatrix) {
+        if (pool != null && (long) rows() * columns() >= 2L * minChunk) {
+            pool.invoke(new EnergyTask(energyMatrix, 0, rows()));
+        } else {
+            calculateEnergy(energyMatrix, 0, rows());
+        }
+        return energyMatrix;
+    }
+
+    /**
+     * Method to compute the energy of every pixel of rows [from, to) into the given matrix
+     *
+     * @param energyMatrix
+     * @param from
+     * @param to
+     */
+    private void calculateEnergy(double[] energyMatrix, int from, int to) {
+        int rows = rows();
+        int columns = columns();
+        /* red, green and blue planes of rows r - 1, r and r + 1, row k being unpacked into slot k % 3 */
+        int[][] red = new int[3][columns];
+        int[][] green = new int[3][columns];
+        int[][] blue = new int[3][columns];
+        /* squared gradients of row r */
+        int[] gradients = new int[columns];
+        int unpacked = from - 2;
+        for (int r = from; r < to; r++) {
+            int row = r * stride;
+            if (r == 0 || r == rows - 1 || columns < 3) {
+                Arrays.fill(energyMatrix, row, row + columns, BORDER_ENERGY);
+                continue;
+            }
+            for (int k = Math.max(unpacked + 1, r - 1); k <= r + 1; k++) {
+                unpack(k, red[k % 3], green[k % 3], blue[k % 3]);
+            }
+            unpacked = r + 1;
+
+            int[] redUp = red[(r - 1) % 3], redRow = red[r % 3], redDown = red[(r + 1) % 3];
+            int[] greenUp = green[(r - 1) % 3], greenRow = green[r % 3], greenDown = green[(r + 1) % 3];
+            int[] blueUp = blue[(r - 1) % 3], blueRow = blue[r % 3], blueDown = blue[(r + 1) % 3];
+            for (int c = 1; c < columns - 1; c++) {
+                int redX = redRow[c + 1] - redRow[c - 1];
+                int greenX = greenRow[c + 1] - greenRow[c - 1];
+                int blueX = blueRow[c + 1] - blueRow[c - 1];
+                gradients[c] = redX * redX + greenX * greenX + blueX * blueX;
+            }
+            for (int c = 1; c < columns - 1; c++) {
+                int redY = redDown[c] - redUp[c];
+                int greenY = greenDown[c] - greenUp[c];
+                int blueY = blueDown[c] - blueUp[c];
+                gradients[c] += redY * redY + greenY * greenY + blueY * blueY;
+            }
+            energyMatrix[row] = BORDER_ENERGY;
+            for (int c = 1; c < columns - 1; c++) {
+                energyMatrix[row + c] = Math.sqrt(gradients[c]);
+            }
+            energyMatrix[row + columns - 1] = BORDER_ENERGY;
+        }
+    }
+
+    /**
+     * Method to split the pixels of row r into their red, green and blue values
+     *
+     * @param r
+     * @param red
+     * @param green
+     * @param blue
+     */
+    private void unpack(int r, int[] red, int[] green, int[] blue) {
+        int row = r * stride;
+        for (int c = 0; c < red.length; c++) {
+            int argb = rgb[row + c];
+            red[c] = (argb >> 16) & 0xFF;
+            green[c] = (argb >> 8) & 0xFF;
+            blue[c] = argb & 0xFF;
+        }
+    }
+
+    /**
+     * Task to compute the energies of rows [from, to), splitting them in halves down to about minChunk pixels
+     */
+    private final class EnergyTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final double[] energyMatrix;
+        private final int from;
+        private final int to;
+
+        EnergyTask(double[] energyMatrix, int from, int to) {
+            this.energyMatrix = energyMatrix;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from < 2 || (long) (to - from) * columns() < 2L * minChunk) {
+                calculateEnergy(energyMatrix, from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new EnergyTask(energyMatrix, from, mid), new EnergyTask(energyMatrix, mid, to));
+        }
+    }
+
+    /**
+     * Method to calculate the energy for a given pixel of picture
+     *
+     * @param x
+     * @param y
+     */
+    public double energy(int x, int y) {
+        if (x < 0 || x > width() - 1) { throw new IllegalArgumentException("X-axis outside range!"); }
+        if (y < 0 || y > height() - 1) { throw new IllegalArgumentException("Y-axis outside range!"); }
+        return energies[index(x, y)];
+    }
+
+    /**
+     * Method to compute the energy of the pixel at row r and column c of the current orientation from its
+     * neighbours
+     *
+     * @param r
+     * @param c
+     */
+    private double calculateEnergy(int r, int c) {
+        if (c == 0 || c == columns() - 1) { return BORDER_ENERGY; }
+        if (r == 0 || r == rows() - 1) { return BORDER_ENERGY; }
+        int i = r * stride + c;
+        return Math.sqrt(gradient(rgb[i - 1], rgb[i + 1]) + gradient(rgb[i - stride], rgb[i + stride]));
+    }
+
+    /**
+     * Returns the pixel whose alpha, red, green and blue values are the averages of those of two pixels, rounded down
+     *
+     * @param argbA
+     * @param argbB
+     */
+    static int average(int argbA, int argbB) {
+        return ((argbA >>> 1) & 0x7F7F7F7F) + ((argbB >>> 1) & 0x7F7F7F7F) + (argbA & argbB & 0x01010101);
+    }
+
+    /**
+     * Returns the sum of the squared differences of the red, green and blue values of two pixels
+     *
+     * @param argbA
+     * @param argbB
+     */
+    static int gradient(int argbA, int argbB) {
+        int red = ((argbB >> 16) & 0xFF) - ((argbA >> 16) & 0xFF);
+        int green = ((argbB >> 8) & 0xFF) - ((argbA >> 8) & 0xFF);
+        int blue = (argbB & 0xFF) - (argbA & 0xFF);
+        return red * red + green * green + blue * blue;
+    }
+}
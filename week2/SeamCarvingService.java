@@ -0,0 +1,161 @@
+import edu.princeton.cs.algs4.Picture;
+import edu.princeton.cs.algs4.StdOut;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Class to resize many pictures at once on a bounded pool of worker threads
+ * <p>
+ * Every worker thread owns a SeamCarver.Workspace holding the pixel, energy and seam search arrays of a carver.
+ * The workspace grows to the largest picture the thread has seen and is handed to every carver the thread creates,
+ * so once the workers are warm a picture only allocates its resized copy and its seams. A worker drops its workspace
+ * when it exits, so closing the service releases them all. Pictures wait in a queue of bounded capacity; when it is
+ * full, submit runs the picture on the calling thread with a workspace of its own, which slows down producers
+ * instead of letting the queue grow. Once the service is closed, submit throws instead of returning a future that
+ * would never complete.
+ */
+public class SeamCarvingService implements AutoCloseable {
+
+    private final ThreadPoolExecutor executor;
+    private final LongAdder images = new LongAdder();
+    private final LongAdder nanos = new LongAdder();
+
+    /**
+     * Constructor of a service with the given number of worker threads and queued pictures
+     *
+     * @param threads
+     * @param queueCapacity
+     */
+    public SeamCarvingService(int threads, int queueCapacity) {
+        if (threads < 1) { throw new IllegalArgumentException("Number of threads must be positive!"); }
+        if (queueCapacity < 1) { throw new IllegalArgumentException("Queue capacity must be positive!"); }
+        executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), Worker::new, SeamCarvingService::runOrReject);
+    }
+
+    /**
+     * Class of the pool threads, each owning the workspace of the carvers it runs until it exits
+     */
+    private static final class Worker extends Thread {
+
+        private SeamCarver.Workspace workspace;
+
+        private Worker(Runnable task) {
+            super(task);
+        }
+
+        @Override
+        public void run() {
+            workspace = new SeamCarver.Workspace();
+            try {
+                super.run();
+            } finally {
+                workspace = null;
+            }
+        }
+    }
+
+    /**
+     * Returns the workspace of the current thread if it is a worker of this service, otherwise a new workspace that
+     * only lives as long as the picture run on the calling thread
+     */
+    private static SeamCarver.Workspace workspace() {
+        Thread thread = Thread.currentThread();
+        return thread instanceof Worker ? ((Worker) thread).workspace : new SeamCarver.Workspace();
+    }
+
+    /**
+     * Method to queue a picture to be resized to the given width and height, returns the future resized picture.
+     * Pictures cannot be submitted once the service is closed
+     *
+     * @param picture
+     * @param targetWidth
+     * @param targetHeight
+     */
+    public Future<Picture> submit(Picture picture, int targetWidth, int targetHeight) {
+        if (executor.isShutdown()) { throw new IllegalStateException("Service is closed!"); }
+        if (picture == null) { throw new IllegalArgumentException("Picture input is null!"); }
+        if (targetWidth < 1 || targetHeight < 1) { throw new IllegalArgumentException("Target size less than 1!"); }
+        if (targetWidth > picture.width() || targetHeight > picture.height()) {
+            throw new IllegalArgumentException("Target size greater than picture size!");
+        }
+        return executor.submit(() -> {
+            long start = System.nanoTime();
+            SeamCarver carver = new SeamCarver(picture, workspace());
+            carver.resize(targetWidth, targetHeight);
+            Picture resized = carver.takePicture();
+            nanos.add(System.nanoTime() - start);
+            images.increment();
+            return resized;
+        });
+    }
+
+    /**
+     * Method to run a picture the full queue has no room for on the calling thread, which slows down producers, or to
+     * reject it if the service was closed meanwhile so that its future is not left pending forever
+     *
+     * @param task
+     * @param executor
+     */
+    private static void runOrReject(Runnable task, ThreadPoolExecutor executor) {
+        if (executor.isShutdown()) { throw new RejectedExecutionException("Service is closed!"); }
+        task.run();
+    }
+
+    /**
+     * Returns the number of pictures resized so far
+     */
+    public long imagesProcessed() {
+        return images.sum();
+    }
+
+    /**
+     * Returns the time spent resizing pictures so far, summed over all threads, in nanoseconds
+     */
+    public long processingNanos() {
+        return nanos.sum();
+    }
+
+    /**
+     * Method to stop accepting pictures and wait for the queued ones to be resized
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Picture picture = new Picture(args[0]);
+        int width = Integer.parseInt(args[1]);
+        int height = Integer.parseInt(args[2]);
+        SeamCarvingService service = new SeamCarvingService(2, 1);
+        List<Future<Picture>> resized = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            resized.add(service.submit(picture, width, height));
+        }
+        service.close();
+        for (Future<Picture> future : resized) {
+            StdOut.printf("resized to %d-by-%d\n", future.get().width(), future.get().height());
+        }
+        try {
+            service.submit(picture, width, height);
+            StdOut.println("submit after close accepted");
+        } catch (IllegalStateException e) {
+            StdOut.println("submit after close rejected: " + e.getMessage());
+        }
+        StdOut.printf("%d pictures in %.1f ms\n", service.imagesProcessed(), service.processingNanos() / 1e6);
+    }
+}
@@ -0,0 +1,531 @@
+import edu.princeton.cs.algs4.Picture;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Class to resize images too large for the heap while preserving their content, just like SeamCarver
+ * <p>
+ * The pixels live in a file of big endian ARGB ints, row by row, which is memory mapped in segments of at most
+ * SEGMENT_BYTES and modified in place: after seams are removed, row y still starts at int y * stride of the file,
+ * stride being the original width, and holds width() pixels. The parents found by a seam search are kept in a
+ * second, temporary mapped file with one byte per pixel, deleted by close.
+ * <p>
+ * Energies are not stored but computed while streaming through the pixels. A vertical seam search reads the file
+ * row by row, keeping only three rows of pixels and two rows of distances on the heap. A horizontal seam search
+ * reads it in strips of columns as wide as STRIP_BYTES allows, in whole pages of the file, keeping one strip and two
+ * columns of distances on the heap. Energies and ties are computed exactly like SeamCarver does, so both find the
+ * same seams on the same picture.
+ */
+public class TiledSeamCarver implements AutoCloseable {
+
+    /* largest number of bytes mapped by one buffer */
+    private static final int SEGMENT_BYTES = 1 << 30;
+    /* heap bytes a horizontal seam search may use for the strip it reads */
+    private static final int STRIP_BYTES = 1 << 26;
+    /* pixels in a page of the file */
+    private static final int PAGE_PIXELS = 4096 / 4;
+
+    private final FileChannel pixelChannel;
+    private final FileChannel edgeChannel;
+    private final Path edgeFile;
+    /* row y starts at int (y % pixelRows) * stride of pixelSegments[y / pixelRows] */
+    private final IntBuffer[] pixelSegments;
+    private final int pixelRows;
+    /* offset -1, 0 or 1 of the parent of every pixel in the last seam search, laid out like the pixels */
+    private final ByteBuffer[] edgeSegments;
+    private final int edgeRows;
+    private final int stride;
+    private int width;
+    private int height;
+
+    /**
+     * Constructor to write the given picture to the given file and carve it from there
+     *
+     * @param picture
+     * @param file
+     */
+    public TiledSeamCarver(Picture picture, String file) {
+        this(write(picture, file), picture.width(), picture.height());
+    }
+
+    /**
+     * Constructor to carve the picture stored in the given file, which holds at least width * height big endian
+     * ARGB ints, row by row. The file is modified as seams are removed
+     *
+     * @param file
+     * @param width
+     * @param height
+     */
+    public TiledSeamCarver(String file, int width, int height) {
+        if (file == null) { throw new IllegalArgumentException("File input is null!"); }
+        if (width < 1 || height < 1) { throw new IllegalArgumentException("Picture size less than 1!"); }
+        if (4L * width > SEGMENT_BYTES) { throw new IllegalArgumentException("Picture width too large!"); }
+        this.width = width;
+        this.height = height;
+        this.stride = width;
+        pixelRows = SEGMENT_BYTES / (4 * stride);
+        edgeRows = SEGMENT_BYTES / stride;
+        pixelSegments = new IntBuffer[(height + pixelRows - 1) / pixelRows];
+        edgeSegments = new ByteBuffer[(height + edgeRows - 1) / edgeRows];
+        try {
+            pixelChannel = FileChannel.open(Paths.get(file), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Could not open " + file, e);
+        }
+        Path edges = null;
+        FileChannel channel = null;
+        try {
+            if (pixelChannel.size() < 4L * width * height) {
+                throw new IllegalArgumentException("File " + file + " is smaller than the picture!");
+            }
+            for (int s = 0; s < pixelSegments.length; s++) {
+                int rows = Math.min(pixelRows, height - s * pixelRows);
+                pixelSegments[s] = pixelChannel.map(FileChannel.MapMode.READ_WRITE, 4L * s * pixelRows * stride,
+                        4L * rows * stride).asIntBuffer();
+            }
+            edges = Files.createTempFile("seams", ".edges");
+            channel = FileChannel.open(edges, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            for (int s = 0; s < edgeSegments.length; s++) {
+                int rows = Math.min(edgeRows, height - s * edgeRows);
+                edgeSegments[s] = channel.map(FileChannel.MapMode.READ_WRITE, (long) s * edgeRows * stride,
+                        (long) rows * stride);
+            }
+        } catch (IOException | RuntimeException e) {
+            release(pixelChannel, channel, edges, e);
+            if (e instanceof IOException) { throw new IllegalArgumentException("Could not map " + file, e); }
+            throw (RuntimeException) e;
+        }
+        edgeFile = edges;
+        edgeChannel = channel;
+    }
+
+    /**
+     * Method to close the channels and delete the edge file opened so far, each one even if the ones before it
+     * failed, adding any error in doing so to the failure
+     *
+     * @param pixels
+     * @param edges
+     * @param edgePath
+     * @param failure
+     */
+    private static void release(FileChannel pixels, FileChannel edges, Path edgePath, Exception failure) {
+        try {
+            pixels.close();
+        } catch (IOException e) {
+            failure.addSuppressed(e);
+        }
+        try {
+            if (edges != null) { edges.close(); }
+        } catch (IOException e) {
+            failure.addSuppressed(e);
+        }
+        try {
+            if (edgePath != null) { Files.deleteIfExists(edgePath); }
+        } catch (IOException e) {
+            failure.addSuppressed(e);
+        }
+    }
+
+    /**
+     * Method to write the pixels of a picture to a file, row by row, returning the file
+     *
+     * @param picture
+     * @param file
+     */
+    private static String write(Picture picture, String file) {
+        if (picture == null) { throw new IllegalArgumentException("Picture input is null!"); }
+        if (file == null) { throw new IllegalArgumentException("File input is null!"); }
+        try (FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer row = ByteBuffer.allocate(4 * picture.width());
+            for (int y = 0; y < picture.height(); y++) {
+                row.clear();
+                for (int x = 0; x < picture.width(); x++) {
+                    row.putInt(picture.getRGB(x, y));
+                }
+                row.flip();
+                while (row.hasRemaining()) {
+                    channel.write(row);
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Could not write " + file, e);
+        }
+        return file;
+    }
+
+    /**
+     * Returns the width of image
+     */
+    public int width() {
+        return width;
+    }
+
+    /**
+     * Returns the height of image
+     */
+    public int height() {
+        return height;
+    }
+
+    /**
+     * Returns the picture object, which has to fit in the heap
+     */
+    public Picture picture() {
+        Picture picture = new Picture(width, height);
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            readRow(y, 0, row, 0, width);
+            for (int x = 0; x < width; x++) {
+                picture.setRGB(x, y, row[x]);
+            }
+        }
+        return picture;
+    }
+
+    /**
+     * Method to calculate the energy for a given pixel of picture
+     *
+     * @param x
+     * @param y
+     */
+    public double energy(int x, int y) {
+        if (x < 0 || x > width() - 1) { throw new IllegalArgumentException("X-axis outside range!"); }
+        if (y < 0 || y > height() - 1) { throw new IllegalArgumentException("Y-axis outside range!"); }
+        if (x == 0 || x == width - 1 || y == 0 || y == height - 1) { return SeamCarver.BORDER_ENERGY; }
+        return Math.sqrt(SeamCarver.gradient(pixel(x - 1, y), pixel(x + 1, y))
+                + SeamCarver.gradient(pixel(x, y - 1), pixel(x, y + 1)));
+    }
+
+    /**
+     * Method to get seam array with minimum sum of energy
+     * <p>
+     * Algo: the rows are read one after the other, the energies of a row being computed from the row and its two
+     * neighbours. The distance of a pixel is its energy plus the smallest distance of the three pixels above it,
+     * tried left to right and replaced only by a strictly smaller sum, and its parent is written to the edge file.
+     */
+    public int[] findVerticalSeam() {
+        int[] up = new int[width];
+        int[] row = new int[width];
+        int[] down = new int[width];
+        double[] energy = new double[width];
+        double[] distTo = new double[width];
+        double[] newDistTo = new double[width];
+        byte[] parents = new byte[width];
+
+        readRow(0, 0, row, 0, width);
+        if (height > 1) { readRow(1, 0, down, 0, width); }
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (x == 0 || x == width - 1 || y == 0 || y == height - 1) {
+                    energy[x] = SeamCarver.BORDER_ENERGY;
+                } else {
+                    energy[x] = Math.sqrt(SeamCarver.gradient(row[x - 1], row[x + 1])
+                            + SeamCarver.gradient(up[x], down[x]));
+                }
+            }
+            if (y == 0) {
+                System.arraycopy(energy, 0, distTo, 0, width);
+            } else {
+                for (int x = 0; x < width; x++) {
+                    int parent = x > 0 ? x - 1 : x;
+                    double min = distTo[parent] + energy[x];
+                    for (int p = parent + 1; p <= x + 1 && p < width; p++) {
+                        double dist = distTo[p] + energy[x];
+                        if (dist < min) {
+                            min = dist;
+                            parent = p;
+                        }
+                    }
+                    newDistTo[x] = min;
+                    parents[x] = (byte) (parent - x);
+                }
+                writeEdges(y, 0, parents, 0, width);
+                double[] swap = distTo;
+                distTo = newDistTo;
+                newDistTo = swap;
+            }
+
+            int[] free = up;
+            up = row;
+            row = down;
+            down = free;
+            if (y + 2 < height) { readRow(y + 2, 0, down, 0, width); }
+        }
+
+        int pos = argMin(distTo, width);
+        int[] seam = new int[height];
+        for (int y = height - 1; y >= 0; y--) {
+            seam[y] = pos;
+            if (y > 0) { pos += edge(pos, y); }
+        }
+        return seam;
+    }
+
+    /**
+     * Method to get seam array with minimum sum of energy
+     * <p>
+     * Algo: the picture is read in strips of stripWidth() columns plus one neighbour column on each side, and the
+     * columns of a strip are relaxed left to right like the rows of a vertical seam search, trying the three
+     * pixels on the left from top to bottom. The parents of a strip are written to the edge file row by row.
+     */
+    public int[] findHorizontalSeam() {
+        double[] energy = new double[height];
+        double[] distTo = new double[height];
+        double[] newDistTo = new double[height];
+        int stripWidth = stripWidth();
+        int[] strip = new int[height * (stripWidth + 2)];
+        byte[] parents = new byte[height * stripWidth];
+
+        for (int x0 = 0; x0 < width; x0 += stripWidth) {
+            int x1 = Math.min(x0 + stripWidth, width);
+            int from = Math.max(x0 - 1, 0);
+            int span = Math.min(x1 + 1, width) - from;
+            for (int y = 0; y < height; y++) {
+                readRow(y, from, strip, y * span, span);
+            }
+
+            for (int x = x0; x < x1; x++) {
+                int i = x - from;
+                for (int y = 0; y < height; y++) {
+                    if (x == 0 || x == width - 1 || y == 0 || y == height - 1) {
+                        energy[y] = SeamCarver.BORDER_ENERGY;
+                    } else {
+                        int at = y * span + i;
+                        energy[y] = Math.sqrt(SeamCarver.gradient(strip[at - 1], strip[at + 1])
+                                + SeamCarver.gradient(strip[at - span], strip[at + span]));
+                    }
+                }
+                if (x == 0) {
+                    System.arraycopy(energy, 0, distTo, 0, height);
+                    continue;
+                }
+                for (int y = 0; y < height; y++) {
+                    int parent = y > 0 ? y - 1 : y;
+                    double min = distTo[parent] + energy[y];
+                    for (int p = parent + 1; p <= y + 1 && p < height; p++) {
+                        double dist = distTo[p] + energy[y];
+                        if (dist < min) {
+                            min = dist;
+                            parent = p;
+                        }
+                    }
+                    newDistTo[y] = min;
+                    parents[y * stripWidth + x - x0] = (byte) (parent - y);
+                }
+                double[] swap = distTo;
+                distTo = newDistTo;
+                newDistTo = swap;
+            }
+            for (int y = 0; y < height; y++) {
+                writeEdges(y, x0, parents, y * stripWidth, x1 - x0);
+            }
+        }
+
+        int pos = argMin(distTo, height);
+        int[] seam = new int[width];
+        for (int x = width - 1; x >= 0; x--) {
+            seam[x] = pos;
+            if (x > 0) { pos += edge(x, pos); }
+        }
+        return seam;
+    }
+
+    /**
+     * Returns the number of columns a horizontal seam search reads at once: as many whole pages of each row as the
+     * 4 bytes of pixel and 1 byte of parent per pixel of a strip fit in STRIP_BYTES, or fewer columns when not even
+     * one page fits, and no more than the width
+     */
+    private int stripWidth() {
+        int columns = Math.max(STRIP_BYTES / (5 * height), 1);
+        if (columns >= PAGE_PIXELS) { columns -= columns % PAGE_PIXELS; }
+        return Math.min(columns, width);
+    }
+
+    /**
+     * Returns the first position of the smallest of the first n distances
+     *
+     * @param distTo
+     * @param n
+     */
+    private static int argMin(double[] distTo, int n) {
+        double minEnergy = Double.POSITIVE_INFINITY;
+        int pos = -1;
+        for (int i = 0; i < n; i++) {
+            if (minEnergy > distTo[i]) {
+                minEnergy = distTo[i];
+                pos = i;
+            }
+        }
+        return pos;
+    }
+
+    /**
+     * Method to remove any given seam from the image height-wise
+     * <p>
+     * Check:
+     * 1. length of seam is equal to height
+     * 2. width of image is greater than 1
+     * 3. adjacent pixels in the seam are not separated by distance greater than 1
+     * <p>
+     * Algo: the pixels right of the seam are shifted one to the left, row by row
+     *
+     * @param seam
+     */
+    public void removeVerticalSeam(int[] seam) {
+        if (seam == null) { throw new IllegalArgumentException("Null argument for removing vertical seam!"); }
+        if (seam.length != height()) { throw new IllegalArgumentException("Seam length greater than height!"); }
+        if (width() <= 1) { throw new IllegalArgumentException("Picture width is less than 1"); }
+        validate(seam, width());
+
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            int length = width - seam[y] - 1;
+            readRow(y, seam[y] + 1, row, 0, length);
+            writeRow(y, seam[y], row, 0, length);
+        }
+        width--;
+    }
+
+    /**
+     * Method to remove any given seam from the image width-wise
+     * <p>
+     * Check:
+     * 1. length of seam is equal to width
+     * 2. height of image is greater than 1
+     * 3. adjacent pixels in the seam are not separated by distance greater than 1
+     * <p>
+     * Algo: the rows are streamed from the top of the seam down, every pixel at or below the seam taking the value of
+     * the pixel below it
+     *
+     * @param seam
+     */
+    public void removeHorizontalSeam(int[] seam) {
+        if (seam == null) { throw new IllegalArgumentException("Null argument for removing horizontal seam!"); }
+        if (seam.length != width()) { throw new IllegalArgumentException("Seam length greater than width!"); }
+        if (height() <= 1) { throw new IllegalArgumentException("Picture height is less than 1"); }
+        validate(seam, height());
+
+        int top = seam[0];
+        for (int y : seam) {
+            top = Math.min(top, y);
+        }
+        int[] row = new int[width];
+        int[] next = new int[width];
+        readRow(top, 0, row, 0, width);
+        for (int y = top; y < height - 1; y++) {
+            readRow(y + 1, 0, next, 0, width);
+            for (int x = 0; x < width; x++) {
+                if (seam[x] <= y) { row[x] = next[x]; }
+            }
+            writeRow(y, 0, row, 0, width);
+            int[] swap = row;
+            row = next;
+            next = swap;
+        }
+        height--;
+    }
+
+    /**
+     * Method to check that every entry of a seam is in [0, limit) and adjacent entries differ by at most 1
+     *
+     * @param seam
+     * @param limit
+     */
+    private static void validate(int[] seam, int limit) {
+        for (int i = 0; i < seam.length; i++) {
+            if (seam[i] < 0 || seam[i] > limit - 1) {
+                throw new IllegalArgumentException("Seam outside range while removing seam!");
+            }
+            if (i > 0 && Math.abs(seam[i] - seam[i - 1]) > 1) {
+                throw new IllegalArgumentException("Adjacent seam entries differ more than 1");
+            }
+        }
+    }
+
+    /**
+     * Returns the pixel at (x, y)
+     *
+     * @param x
+     * @param y
+     */
+    private int pixel(int x, int y) {
+        return pixelSegments[y / pixelRows].get((y % pixelRows) * stride + x);
+    }
+
+    /**
+     * Method to copy length pixels of row y, starting at column from, into row[offset..]
+     *
+     * @param y
+     * @param from
+     * @param row
+     * @param offset
+     * @param length
+     */
+    private void readRow(int y, int from, int[] row, int offset, int length) {
+        IntBuffer segment = pixelSegments[y / pixelRows].duplicate();
+        segment.position((y % pixelRows) * stride + from);
+        segment.get(row, offset, length);
+    }
+
+    /**
+     * Method to copy row[offset..offset + length) into row y, starting at column from
+     *
+     * @param y
+     * @param from
+     * @param row
+     * @param offset
+     * @param length
+     */
+    private void writeRow(int y, int from, int[] row, int offset, int length) {
+        IntBuffer segment = pixelSegments[y / pixelRows].duplicate();
+        segment.position((y % pixelRows) * stride + from);
+        segment.put(row, offset, length);
+    }
+
+    /**
+     * Returns the offset of the parent of pixel (x, y) in the last seam search
+     *
+     * @param x
+     * @param y
+     */
+    private int edge(int x, int y) {
+        return edgeSegments[y / edgeRows].get((y % edgeRows) * stride + x);
+    }
+
+    /**
+     * Method to copy parents[offset..offset + length) into the parents of row y, starting at column from
+     *
+     * @param y
+     * @param from
+     * @param parents
+     * @param offset
+     * @param length
+     */
+    private void writeEdges(int y, int from, byte[] parents, int offset, int length) {
+        ByteBuffer segment = edgeSegments[y / edgeRows].duplicate();
+        segment.position((y % edgeRows) * stride + from);
+        segment.put(parents, offset, length);
+    }
+
+    /**
+     * Method to close the pixel file and delete the temporary parent file. The mapped buffers are dropped, so the
+     * carver cannot be used afterwards
+     */
+    @Override
+    public void close() {
+        Arrays.fill(pixelSegments, null);
+        Arrays.fill(edgeSegments, null);
+        IllegalArgumentException failure = new IllegalArgumentException("Could not close " + edgeFile);
+        release(pixelChannel, edgeChannel, edgeFile, failure);
+        if (failure.getSuppressed().length > 0) { throw failure; }
+    }
+}
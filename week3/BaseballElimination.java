@@ -1,17 +1,28 @@
-import edu.princeton.cs.algs4.FlowEdge;
-import edu.princeton.cs.algs4.FlowNetwork;
-import edu.princeton.cs.algs4.FordFulkerson;
 import edu.princeton.cs.algs4.In;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
- * Class to determine which team falls out of the league using Maximum Flow - Min Cut Theorem (Ford-Fulkerson Algo)
+ * Class to determine which team falls out of the league using Maximum Flow - Min Cut Theorem (Dinic's Algo)
+ * <p>
+ * The constructor only reads the league and finds the trivially eliminated teams. Any other team is checked the first
+ * time isEliminated or certificateOfElimination is called for it, and its certificate is kept for later calls. Queries
+ * are safe to call from multiple threads, each thread checking teams in its own EliminationNetwork. checkAllTeams
+ * checks every team at once on a fork/join pool; the network of a team only leaves out the team itself and the
+ * trivially eliminated teams, so the results do not depend on the order the teams are checked in.
+ * <p>
+ * play records the result of a match and only checks again, on their next query, the teams which may have been
+ * eliminated by it.
  */
 public class BaseballElimination {
 
@@ -21,14 +32,27 @@ public class BaseballElimination {
     private final Map<String, List<Integer>> teamInfo;
     /* Data variable to indicate no. of matches left between team i and j */
     private final int[][] fixtureGrid;
-    /* Data variable to store teams eliminated from the league */
+    /* Data variable to store the certificate of elimination of each team checked so far, empty if not eliminated */
     private final Map<String, List<String>> eliminated;
+    /* Data variable to store the team represented by each index */
+    private final Map<Integer, String> teamIndex;
+    /* Data variable to store the wins of each team by index, read by the flow networks */
+    private final int[] teamWins;
+    /* Data variable to indicate the trivially eliminated teams by index, read by the flow networks */
+    private final boolean[] trivialTeams;
+    /* Data variable to store teams known to be eliminated whose certificate has to be computed again, empty unless
+     * the remaining matches of every team include its matches left against the other teams */
+    private final Set<String> knownEliminated = ConcurrentHashMap.newKeySet();
+    /* Data variable to store the bounds on elimination, null until the first query needs them */
+    private volatile Bounds bounds;
+    /* Data variable to store the flow network of the teams that are not trivially eliminated, one per thread */
+    private final ThreadLocal<EliminationNetwork> networks = ThreadLocal.withInitial(this::createNetwork);
 
     public BaseballElimination(String fileName) {
         if (fileName == null) { throw new IllegalArgumentException(); }
         In in = new In(fileName);
         teamInfo = new HashMap<>();
-        eliminated = new HashMap<>();
+        eliminated = new ConcurrentHashMap<>();
         noOfTeams = Integer.parseInt(in.readLine());
         fixtureGrid = new int[noOfTeams][noOfTeams];
 
@@ -38,8 +62,16 @@ public class BaseballElimination {
             initialize(line.trim(), index);
             index++;
         }
+        teamIndex = new HashMap<>();
+        for (String team : teams()) {
+            teamIndex.put(teamInfo.get(team).get(3), team);
+        }
+        teamWins = new int[noOfTeams];
+        for (int i = 0; i < noOfTeams; i++) {
+            teamWins[i] = wins(teamIndex.get(i));
+        }
+        trivialTeams = new boolean[noOfTeams];
         checkTrivialElimination();
-        checkNonTrivialElimination();
     }
 
     /**
@@ -83,108 +115,282 @@ public class BaseballElimination {
                 List<String> list = new ArrayList<>();
                 list.add(teamWithMaxWins);
                 eliminated.put(team, list);
+                trivialTeams[teamInfo.get(team).get(3)] = true;
             }
         }
     }
 
     /**
-     * Method to check if a team is eliminated from the league based on Max Flow - Min Cut theorem
-     * http://coursera.cs.princeton.edu/algs4/assignments/baseball.html
+     * Method to get the bounds on a*, the largest a(R) over the subsets R of teams, computed on the first query
+     * <p>
+     * Algo:
+     * Let a(R) be (wins of the teams of R + matches left between them) / |R| for a subset R of teams. A team is
+     * eliminated iff its wins + remaining matches total is less than a*: a subset R with a(R) greater than that total
+     * keeps an average greater than it once the team itself is taken out of R. So bounds on a* settle teams without
+     * a max flow:
+     * 1. a(R) is the average over the teams i of R of wins(i) + (matches left of i against R) / 2, so a* is at most the
+     * largest wins(i) + (matches left of i in the league) / 2 -- teams with a total of at least that are not eliminated
+     * 2. a* is at least a(R) of the sets R of the teams with the most wins -- teams with a smaller total are eliminated
+     * This only holds if the remaining matches of every team include its matches left against the other teams;
+     * otherwise the bounds settle no team.
+     * <p>
+     * Every max flow run afterwards tightens the bounds: a team found not eliminated clears the teams with a larger
+     * total, and the certificate of an eliminated team is a subset R whose a(R) may raise the lower bound.
      */
-    private void checkNonTrivialElimination() {
-        Map<Integer, String> teamIndex = new HashMap<>();
-        for (String team : teams()) {
-            teamIndex.put(teamInfo.get(team).get(3), team);
-        }
-        for (String team : teams()) {
-            if (eliminated.containsKey(team)) { continue; }
-            Set<Integer> excludedTeams = new HashSet<>();
-            for (String team1 : eliminated.keySet()) {
-                excludedTeams.add(teamInfo.get(team1).get(3));
-            }
-            excludedTeams.add(teamInfo.get(team).get(3));
-            int total = wins(team) + remaining(team);
-            Map<Integer, Integer> edgesTo = edgesToMap(excludedTeams);
-            FlowNetwork network = createNetwork(excludedTeams, teamIndex, total, edgesTo);
-            FordFulkerson fordFulkerson = new FordFulkerson(network, 0, network.V() - 1);
-
-            boolean elimination = false;
-            for (FlowEdge e : network.adj(0)) {
-                if (e.residualCapacityTo(e.to()) > 0) {
-                    elimination = true;
-                }
-            }
-            if (!elimination) { continue; }
-
-            List<String> subset = new ArrayList<>();
+    private Bounds bounds() {
+        Bounds bounds = this.bounds;
+        if (bounds != null) { return bounds; }
+        if (remainingIncludesFixtures()) {
+            long upper = 0;
             for (int i = 0; i < noOfTeams; i++) {
-                if (excludedTeams.contains(i)) { continue; }
-                if (fordFulkerson.inCut(edgesTo.get(i))) {
-                    subset.add(teamIndex.get(i));
-                }
+                upper = Math.max(upper, 2L * wins(teamIndex.get(i)) + fixtures(i));
             }
-            eliminated.put(team, subset);
+            long[] lower = prefixLowerBound();
+            bounds = new Bounds(lower[0], lower[1], upper);
+        } else {
+            bounds = Bounds.NONE;
+        }
+        synchronized (this) {
+            if (this.bounds == null) { this.bounds = bounds; }
+            return this.bounds;
         }
     }
 
     /**
-     * Method to create a FlowNetwork for a given list of excluded teams
-     * FlowNetwork contains a source vertex, connecting to all the fixtures between different teams and a sink vertex
-     * which is connected to all the teams represented as vertex
-     * <p>
-     * Refer this link: http://coursera.cs.princeton.edu/algs4/assignments/baseball.html to gain clarity
+     * Method to tighten the bounds with the result of the max flow of a team, given its certificate
      *
-     * @param excludedTeams
-     * @param teamIndex
-     * @param total
-     * @param edgesTo
+     * @param team
+     * @param certificate
+     */
+    private synchronized void tightenBounds(String team, List<String> certificate) {
+        if (bounds == Bounds.NONE) { return; }
+        bounds = certificate.isEmpty() ? bounds.withUpper(2 * total(team)) : bounds.withLower(average(certificate));
+    }
+
+    /**
+     * Method to check whether the remaining matches of every team include all its matches left against the other
+     * teams
      */
-    private FlowNetwork createNetwork(Set<Integer> excludedTeams, Map<Integer, String> teamIndex, int total,
-            Map<Integer, Integer> edgesTo) {
-        int source = 0;
-        int fixtureVertices = (noOfTeams - excludedTeams.size()) * (noOfTeams - excludedTeams.size() - 1) / 2;
-        int teamVertices = noOfTeams - excludedTeams.size();
-        int sink = fixtureVertices + teamVertices + 1;
-
-        FlowNetwork network = new FlowNetwork(sink + 1);
-        int sourceEdges = 1;
+    private boolean remainingIncludesFixtures() {
         for (int i = 0; i < noOfTeams; i++) {
-            for (int j = i + 1; j < noOfTeams; j++) {
-                if (excludedTeams.contains(i) || excludedTeams.contains(j)) { continue; }
-                FlowEdge sourceEdge = new FlowEdge(source, sourceEdges++, fixtureGrid[i][j]);
-                FlowEdge iTeamEdge = new FlowEdge(sourceEdge.to(), edgesTo.get(i), Double.POSITIVE_INFINITY);
-                FlowEdge jTeamEdge = new FlowEdge(sourceEdge.to(), edgesTo.get(j), Double.POSITIVE_INFINITY);
-                network.addEdge(sourceEdge);
-                network.addEdge(iTeamEdge);
-                network.addEdge(jTeamEdge);
+            if (fixtures(i) > remaining(teamIndex.get(i))) { return false; }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the matches left of the team with index i against the other teams
+     *
+     * @param i
+     */
+    private long fixtures(int i) {
+        long fixtures = 0;
+        for (int j = 0; j < noOfTeams; j++) {
+            if (j != i) { fixtures += fixtureGrid[Math.min(i, j)][Math.max(i, j)]; }
+        }
+        return fixtures;
+    }
+
+    /**
+     * Method to get the largest a(R) over the sets R of the teams with the most wins, as a numerator and denominator
+     */
+    private long[] prefixLowerBound() {
+        List<String> byWins = new ArrayList<>(teamInfo.keySet());
+        byWins.sort(Comparator.comparingInt(this::wins).reversed());
+        long[] lower = {0, 1};
+        long sum = 0;
+        for (int k = 0; k < byWins.size(); k++) {
+            int i = teamInfo.get(byWins.get(k)).get(3);
+            sum += wins(byWins.get(k));
+            for (int p = 0; p < k; p++) {
+                int j = teamInfo.get(byWins.get(p)).get(3);
+                sum += fixtureGrid[Math.min(i, j)][Math.max(i, j)];
             }
+            if (sum * lower[1] > lower[0] * (k + 1)) { lower = new long[] {sum, k + 1}; }
         }
+        return lower;
+    }
 
-        for (int i = 0; i < noOfTeams; i++) {
-            if (excludedTeams.contains(i)) { continue; }
-            FlowEdge sinkEdge = new FlowEdge(edgesTo.get(i), sink, total - wins(teamIndex.get(i)));
-            network.addEdge(sinkEdge);
+    /**
+     * Method to get a(R) of a subset of teams, as a numerator and denominator
+     *
+     * @param subset
+     */
+    private long[] average(List<String> subset) {
+        long sum = 0;
+        for (int p = 0; p < subset.size(); p++) {
+            int i = teamInfo.get(subset.get(p)).get(3);
+            sum += wins(subset.get(p));
+            for (int q = 0; q < p; q++) {
+                int j = teamInfo.get(subset.get(q)).get(3);
+                sum += fixtureGrid[Math.min(i, j)][Math.max(i, j)];
+            }
         }
+        return new long[] {sum, subset.size()};
+    }
 
-        return network;
+    /**
+     * Returns the wins + remaining matches total of a team
+     *
+     * @param team
+     */
+    private long total(String team) {
+        return wins(team) + remaining(team);
+    }
+
+    /**
+     * Method to check every team in parallel on the common fork/join pool, so that later queries only look the
+     * results up. The results are the same as when the teams are queried one after the other
+     */
+    public void checkAllTeams() {
+        checkAllTeams(ForkJoinPool.commonPool());
     }
 
     /**
-     * Method to return a map of each team versus its representation as the vertex (connecting to sink) in the
-     * FlowNetwork
+     * Method to check every team in parallel on the given fork/join pool, so that later queries only look the
+     * results up. The results are the same as when the teams are queried one after the other
      *
-     * @param excludedTeams
+     * @param pool
      */
-    private Map<Integer, Integer> edgesToMap(Set<Integer> excludedTeams) {
-        Map<Integer, Integer> edgesTo = new HashMap<>();
+    public void checkAllTeams(ForkJoinPool pool) {
+        if (pool == null) { throw new IllegalArgumentException("Pool cannot be null!"); }
+        List<String> teams = new ArrayList<>();
+        for (String team : teams()) {
+            if (!eliminated.containsKey(team)) { teams.add(team); }
+        }
+        pool.invoke(new CheckTask(teams, 0, teams.size()));
+    }
 
-        int fixtureVertices = (noOfTeams - excludedTeams.size()) * (noOfTeams - excludedTeams.size() - 1) / 2;
-        int counter = 1;
-        for (int i = 0; i < noOfTeams; i++) {
-            if (excludedTeams.contains(i)) { continue; }
-            edgesTo.put(i, fixtureVertices + counter++);
+    /**
+     * Task to check teams [from, to) of a list, one team per task
+     */
+    private final class CheckTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<String> teams;
+        private final int from;
+        private final int to;
+
+        CheckTask(List<String> teams, int from, int to) {
+            this.teams = teams;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new CheckTask(teams, from, mid), new CheckTask(teams, mid, to));
+                return;
+            }
+            if (from < to) { certificate(teams.get(from)); }
+        }
+    }
+
+    /**
+     * Method to get the certificate of elimination of a team, empty if it is not eliminated, checking it on the
+     * first call for the team only. Two threads asking for the same team at the same time may both check it, the
+     * certificate of the first one being kept
+     *
+     * @param team
+     */
+    private List<String> certificate(String team) {
+        List<String> certificate = eliminated.get(team);
+        if (certificate != null) { return certificate; }
+        certificate = checkElimination(team);
+        List<String> previous = eliminated.putIfAbsent(team, certificate);
+        return previous == null ? certificate : previous;
+    }
+
+    /**
+     * Method to check if a team that is not trivially eliminated is eliminated based on Max Flow - Min Cut theorem,
+     * leaving the team and the trivially eliminated teams out of the network. Returns the teams on the source side of
+     * the min cut, or an empty list if the team is not eliminated
+     * http://coursera.cs.princeton.edu/algs4/assignments/baseball.html
+     *
+     * @param team
+     */
+    private List<String> checkElimination(String team) {
+        if (bounds().clears(total(team))) { return Collections.emptyList(); }
+        int index = teamInfo.get(team).get(3);
+        EliminationNetwork network = networks.get();
+        boolean elimination = network.isEliminated(index, wins(team) + remaining(team));
+
+        List<String> subset = new ArrayList<>();
+        for (int i = 0; elimination && i < noOfTeams; i++) {
+            if (i != index && network.inCut(i)) {
+                subset.add(teamIndex.get(i));
+            }
+        }
+        tightenBounds(team, subset);
+        return subset;
+    }
+
+    /**
+     * Class holding bounds on a*: lowerNumerator / lowerDenominator < a* <= upper / 2
+     */
+    private static final class Bounds {
+
+        /* bounds settling no team, used when the remaining matches do not allow any */
+        static final Bounds NONE = new Bounds(0, 1, Long.MAX_VALUE);
+
+        private final long lowerNumerator;
+        private final long lowerDenominator;
+        private final long upper;
+
+        Bounds(long lowerNumerator, long lowerDenominator, long upper) {
+            this.lowerNumerator = lowerNumerator;
+            this.lowerDenominator = lowerDenominator;
+            this.upper = upper;
+        }
+
+        /**
+         * Returns true if a team with the given total is eliminated for sure
+         *
+         * @param total
+         */
+        boolean eliminates(long total) {
+            return total * lowerDenominator < lowerNumerator;
+        }
+
+        /**
+         * Returns true if a team with the given total is not eliminated for sure
+         *
+         * @param total
+         */
+        boolean clears(long total) {
+            return 2 * total >= upper;
+        }
+
+        /**
+         * Returns these bounds with the upper bound lowered to the given one if it is smaller
+         *
+         * @param upper
+         */
+        Bounds withUpper(long upper) {
+            return upper < this.upper ? new Bounds(lowerNumerator, lowerDenominator, upper) : this;
+        }
+
+        /**
+         * Returns these bounds with the lower bound raised to the given fraction if it is larger
+         *
+         * @param lower
+         */
+        Bounds withLower(long[] lower) {
+            boolean larger = lower[0] * lowerDenominator > lowerNumerator * lower[1];
+            return larger ? new Bounds(lower[0], lower[1], upper) : this;
         }
-        return edgesTo;
+    }
+
+    /**
+     * Method to create the flow network of the teams that are not trivially eliminated
+     * <p>
+     * Refer this link: http://coursera.cs.princeton.edu/algs4/assignments/baseball.html to gain clarity
+     */
+    private EliminationNetwork createNetwork() {
+        return new EliminationNetwork(fixtureGrid, teamWins, trivialTeams);
     }
 
     /**
@@ -258,6 +464,54 @@ public class BaseballElimination {
         return fixtureGrid[i][j];
     }
 
+    /**
+     * Method to record that the winner beat the loser in one of the matches left between them, which must not be
+     * called while other threads query
+     * <p>
+     * Algo:
+     * the wins + remaining matches total of the winner stays the same and the one of the loser drops by one, while
+     * a(R) of every subset R of teams grows or stays the same. If the remaining matches of every team include its
+     * matches left against the other teams, a team is eliminated iff its total is less than a*, so every eliminated
+     * team stays eliminated and only the other teams are checked again, on their next query. Otherwise the trivially
+     * eliminated teams left out of the flow networks may change the answer the other way, so every team is checked
+     * again. A match played takes one from the remaining matches and from the matches left against the other teams of
+     * both its teams, so which case holds never changes. The certificates of the eliminated teams are computed again
+     * too when they are asked for, so that all answers are the same as for the league read from a file. The flow
+     * networks read the new standings on their next check and start from the flow they hold.
+     *
+     * @param winner
+     * @param loser
+     */
+    public void play(String winner, String loser) {
+        validate(winner);
+        validate(loser);
+        int i = teamInfo.get(winner).get(3);
+        int j = teamInfo.get(loser).get(3);
+        if (i == j || fixtureGrid[i][j] < 1) { throw new IllegalArgumentException("No match left between the teams!"); }
+
+        List<Integer> winnerInfo = teamInfo.get(winner);
+        winnerInfo.set(0, winnerInfo.get(0) + 1);
+        winnerInfo.set(2, winnerInfo.get(2) - 1);
+        List<Integer> loserInfo = teamInfo.get(loser);
+        loserInfo.set(1, loserInfo.get(1) + 1);
+        loserInfo.set(2, loserInfo.get(2) - 1);
+        fixtureGrid[i][j]--;
+        fixtureGrid[j][i]--;
+        teamWins[i]++;
+
+        if (remainingIncludesFixtures()) {
+            for (Map.Entry<String, List<String>> entry : eliminated.entrySet()) {
+                if (!entry.getValue().isEmpty()) { knownEliminated.add(entry.getKey()); }
+            }
+        } else {
+            knownEliminated.clear();
+        }
+        eliminated.clear();
+        bounds = null;
+        Arrays.fill(trivialTeams, false);
+        checkTrivialElimination();
+    }
+
     /**
      * To check if a team is eliminated from the league
      *
@@ -265,7 +519,10 @@ public class BaseballElimination {
      */
     public boolean isEliminated(String team) {
         validate(team);
-        return eliminated.containsKey(team);
+        List<String> certificate = eliminated.get(team);
+        if (certificate != null) { return !certificate.isEmpty(); }
+        if (knownEliminated.contains(team) || bounds().eliminates(total(team))) { return true; }
+        return !certificate(team).isEmpty();
     }
 
     /**
@@ -275,6 +532,7 @@ public class BaseballElimination {
      */
     public Iterable<String> certificateOfElimination(String team) {
         validate(team);
-        return eliminated.get(team);
+        List<String> certificate = certificate(team);
+        return certificate.isEmpty() ? null : certificate;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,121 @@
+import edu.princeton.cs.algs4.StdOut;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Check that a league updated by play gives the same answers as the league read again from a file
+ * <p>
+ * Every team of the league is checked before the matches are played, so that play has answers to keep or drop.
+ * Then the standings are written to a temporary file, read into a new league, and the eliminations and certificates
+ * of both leagues are compared. The temporary files are deleted as soon as they are read.
+ */
+final class BaseballEliminationPlayCheck {
+
+    private BaseballEliminationPlayCheck() { }
+
+    /**
+     * Returns the standings of the league, line by line in the format the constructor of BaseballElimination reads
+     *
+     * @param division
+     */
+    private static List<String> standings(BaseballElimination division) {
+        List<String> teams = new ArrayList<>();
+        for (String team : division.teams()) {
+            teams.add(team);
+        }
+        List<String> lines = new ArrayList<>();
+        lines.add(String.valueOf(teams.size()));
+        for (String team : teams) {
+            StringBuilder line = new StringBuilder(team);
+            line.append(' ').append(division.wins(team)).append(' ').append(division.losses(team))
+                    .append(' ').append(division.remaining(team));
+            for (String other : teams) {
+                line.append(' ').append(team.equals(other) ? 0 : division.against(team, other));
+            }
+            lines.add(line.toString());
+        }
+        return lines;
+    }
+
+    /**
+     * Method to read a league from the given lines through a temporary file, which is deleted afterwards
+     *
+     * @param lines
+     */
+    private static BaseballElimination read(List<String> lines) {
+        Path file = null;
+        try {
+            file = Files.createTempFile("league", ".txt");
+            Files.write(file, lines);
+            return new BaseballElimination(file.toString());
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Could not write the league", e);
+        } finally {
+            if (file != null) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    StdOut.println("Could not delete " + file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the league in the file given as first argument and plays the matches given by the other arguments as
+     * winner loser pairs, then prints which teams are eliminated and exits with status 1 if any answer differs from
+     * the one for the league read from a file. Without arguments, a league whose remaining matches do not include
+     * all its matches left is used: New_York beating Atlanta eliminates Atlanta trivially, which clears New_York.
+     *
+     * @param args
+     */
+    public static void main(String[] args) {
+        BaseballElimination division;
+        List<String> matches = new ArrayList<>();
+        if (args.length == 0) {
+            division = read(Arrays.asList("4",
+                    "New_York 12 0 5 0 3 3 3",
+                    "Atlanta 16 1 1 3 0 1 1",
+                    "Montreal 15 1 4 3 1 0 2",
+                    "Philadelphia 17 1 3 3 1 2 0"));
+            matches.addAll(Arrays.asList("New_York", "Atlanta"));
+        } else {
+            division = new BaseballElimination(args[0]);
+            matches.addAll(Arrays.asList(args).subList(1, args.length));
+        }
+        for (String team : division.teams()) {
+            division.isEliminated(team);
+        }
+        for (int m = 0; m + 1 < matches.size(); m += 2) {
+            division.play(matches.get(m), matches.get(m + 1));
+        }
+
+        BaseballElimination read = read(standings(division));
+        boolean same = true;
+        for (String team : division.teams()) {
+            boolean eliminated = division.isEliminated(team);
+            Iterable<String> certificate = division.certificateOfElimination(team);
+            if (eliminated && certificate == null) {
+                StdOut.println(team + " is eliminated without a certificate");
+                same = false;
+            } else if (eliminated) {
+                StdOut.print(team + " is eliminated by the subset R = { ");
+                for (String t : certificate) {
+                    StdOut.print(t + " ");
+                }
+                StdOut.println("}");
+            } else {
+                StdOut.println(team + " is not eliminated");
+            }
+            same &= eliminated == read.isEliminated(team)
+                    && String.valueOf(certificate).equals(String.valueOf(read.certificateOfElimination(team)));
+        }
+        StdOut.println("same as the league read from a file: " + same);
+        if (!same) { System.exit(1); }
+    }
+}
@@ -0,0 +1,332 @@
+import java.util.Arrays;
+
+/**
+ * Flow network of the matches left between the teams of a league, with int capacities in flat arrays, solved with
+ * Dinic's algorithm
+ * <p>
+ * Vertex 0 is the source, followed by one vertex per pair of teams with matches left between them, one vertex per team
+ * and the sink. The edges leaving a vertex are consecutive in the arrays, in compressed sparse row form, and every
+ * edge has a reverse edge whose residual capacity is the flow sent through it. Teams excluded when the network is
+ * built, and pairs without matches left, are left out.
+ * <p>
+ * The network is built once for all the teams and reused for each one: a team is left out of a check by giving its
+ * pairs no capacity from the source and its edge to the sink no capacity, which leaves the same max flow and min cut
+ * as a network without it. The capacities are read from the arrays of the league on every check, so a check sees the
+ * matches played and the teams excluded since the network was built.
+ * <p>
+ * A check starts from the flow of the previous one instead of an empty flow. Every unit of flow goes from the source
+ * through a pair and one of its teams to the sink, so where a capacity became smaller than its flow, the extra units
+ * are simply taken back along their path. What is left is a valid flow, which Dinic's algorithm augments to a max
+ * flow. The residual network of a max flow leaves the same vertices reachable from the source whichever max flow it
+ * is, so certificates do not depend on the flow a check starts from.
+ */
+final class EliminationNetwork {
+
+    private static final int SOURCE = 0;
+    private static final int INFINITY = Integer.MAX_VALUE;
+
+    /* arrays of the league, fixtures[i][j] being the matches left between teams i < j */
+    private final int[][] fixtures;
+    private final int[] wins;
+    private final boolean[] excluded;
+
+    private final int sink;
+    /* the edges leaving vertex v are offsets[v] to offsets[v + 1] - 1 */
+    private final int[] offsets;
+    private final int[] targets;
+    private final int[] reverse;
+    /* residual capacities of the current flow */
+    private final int[] residual;
+    /* team of the league at each position of the network, and position of each team of the league, -1 if left out */
+    private final int[] teams;
+    private final int[] local;
+    /* for each pair, its two teams, its edge from the source and its edges to its two teams */
+    private final int[] pairTeams;
+    private final int[] pairEdges;
+    private final int[] teamEdges;
+    /* edge to the sink of each team */
+    private final int[] sinkEdges;
+
+    /* search state of Dinic's algorithm */
+    private final int[] level;
+    private final int[] queue;
+    private final int[] next;
+
+    /**
+     * Constructor of the network of the teams of a league that are not excluded, fixtures[i][j] being the matches
+     * left between teams i < j and wins[i] the wins of team i. The network keeps reading the given arrays
+     *
+     * @param fixtures
+     * @param wins
+     * @param excluded
+     */
+    EliminationNetwork(int[][] fixtures, int[] wins, boolean[] excluded) {
+        this.fixtures = fixtures;
+        this.wins = wins;
+        this.excluded = excluded;
+        local = new int[wins.length];
+        int n = 0;
+        for (int i = 0; i < wins.length; i++) {
+            local[i] = excluded[i] ? -1 : n++;
+        }
+        teams = new int[n];
+        for (int i = 0; i < wins.length; i++) {
+            if (local[i] >= 0) { teams[local[i]] = i; }
+        }
+
+        int pairs = 0;
+        for (int a = 0; a < n; a++) {
+            for (int b = a + 1; b < n; b++) {
+                if (matches(teams[a], teams[b]) > 0) { pairs++; }
+            }
+        }
+        sink = pairs + n + 1;
+        int V = sink + 1;
+
+        /* edges in the order they are added, edge 2k + 1 being the reverse of edge 2k */
+        int E = 2 * (3 * pairs + n);
+        int[] from = new int[E];
+        int[] to = new int[E];
+        int[] cap = new int[E];
+        pairTeams = new int[2 * pairs];
+        int edges = 0;
+        int pair = 0;
+        for (int a = 0; a < n; a++) {
+            for (int b = a + 1; b < n; b++) {
+                if (matches(teams[a], teams[b]) == 0) { continue; }
+                int vertex = 1 + pair;
+                edges = addEdge(from, to, cap, edges, SOURCE, vertex, 0);
+                edges = addEdge(from, to, cap, edges, vertex, pairs + 1 + a, INFINITY);
+                edges = addEdge(from, to, cap, edges, vertex, pairs + 1 + b, INFINITY);
+                pairTeams[2 * pair] = a;
+                pairTeams[2 * pair + 1] = b;
+                pair++;
+            }
+        }
+        for (int t = 0; t < n; t++) {
+            edges = addEdge(from, to, cap, edges, pairs + 1 + t, sink, 0);
+        }
+
+        /* counting sort of the edges on their source vertex, the flow being empty */
+        offsets = new int[V + 1];
+        for (int e = 0; e < E; e++) {
+            offsets[from[e] + 1]++;
+        }
+        for (int v = 0; v < V; v++) {
+            offsets[v + 1] += offsets[v];
+        }
+        int[] position = new int[E];
+        int[] filled = new int[V];
+        targets = new int[E];
+        residual = new int[E];
+        for (int e = 0; e < E; e++) {
+            position[e] = offsets[from[e]] + filled[from[e]]++;
+            targets[position[e]] = to[e];
+            residual[position[e]] = cap[e];
+        }
+        reverse = new int[E];
+        for (int e = 0; e < E; e++) {
+            reverse[position[e]] = position[e ^ 1];
+        }
+
+        pairEdges = new int[pairs];
+        teamEdges = new int[2 * pairs];
+        for (int p = 0; p < pairs; p++) {
+            pairEdges[p] = position[6 * p];
+            teamEdges[2 * p] = position[6 * p + 2];
+            teamEdges[2 * p + 1] = position[6 * p + 4];
+        }
+        sinkEdges = new int[n];
+        for (int t = 0; t < n; t++) {
+            sinkEdges[t] = position[6 * pairs + 2 * t];
+        }
+
+        level = new int[V];
+        queue = new int[V];
+        next = new int[V];
+    }
+
+    /**
+     * Returns the matches left between teams i and j of the league
+     *
+     * @param i
+     * @param j
+     */
+    private int matches(int i, int j) {
+        return fixtures[Math.min(i, j)][Math.max(i, j)];
+    }
+
+    /**
+     * Method to add the edge v -> w of the given capacity and its reverse edge, returns the number of edges after them
+     *
+     * @param from
+     * @param to
+     * @param cap
+     * @param edges
+     * @param v
+     * @param w
+     * @param c
+     */
+    private static int addEdge(int[] from, int[] to, int[] cap, int edges, int v, int w, int c) {
+        from[edges] = v;
+        to[edges] = w;
+        cap[edges] = c;
+        from[edges + 1] = w;
+        to[edges + 1] = v;
+        return edges + 2;
+    }
+
+    /**
+     * Method to check if the given team of the league, which must be in the network and not excluded, is eliminated
+     * when it wins all its remaining matches for the given total, which must be at least the wins of every team that
+     * is not excluded. Afterwards inCut tells the teams of the certificate
+     *
+     * @param team
+     * @param total
+     */
+    boolean isEliminated(int team, int total) {
+        int x = local[team];
+        long matches = 0;
+        for (int p = 0; p < pairEdges.length; p++) {
+            int a = pairTeams[2 * p];
+            int b = pairTeams[2 * p + 1];
+            boolean left = a == x || b == x || excluded[teams[a]] || excluded[teams[b]];
+            int capacity = left ? 0 : matches(teams[a], teams[b]);
+            setPairCapacity(p, capacity);
+            matches += capacity;
+        }
+        for (int t = 0; t < sinkEdges.length; t++) {
+            setSinkCapacity(t, t == x || excluded[teams[t]] ? 0 : total - wins[teams[t]]);
+        }
+
+        maxFlow();
+        long flow = 0;
+        for (int e : pairEdges) {
+            flow += residual[reverse[e]];
+        }
+        return flow < matches;
+    }
+
+    /**
+     * Method to set the capacity of the edge from the source to pair p, first taking back from the teams of the pair
+     * the flow above the new capacity
+     *
+     * @param p
+     * @param capacity
+     */
+    private void setPairCapacity(int p, int capacity) {
+        int e = pairEdges[p];
+        int flow = residual[reverse[e]];
+        for (int k = 2 * p; flow > capacity && k < 2 * p + 2; k++) {
+            int teamEdge = teamEdges[k];
+            int back = Math.min(flow - capacity, residual[reverse[teamEdge]]);
+            residual[teamEdge] += back;
+            residual[reverse[teamEdge]] -= back;
+            int sinkEdge = sinkEdges[pairTeams[k]];
+            residual[sinkEdge] += back;
+            residual[reverse[sinkEdge]] -= back;
+            flow -= back;
+        }
+        residual[e] = capacity - flow;
+        residual[reverse[e]] = flow;
+    }
+
+    /**
+     * Method to set the capacity of the edge from team t to the sink, first taking back from the pairs of the team
+     * the flow above the new capacity
+     *
+     * @param t
+     * @param capacity
+     */
+    private void setSinkCapacity(int t, int capacity) {
+        int s = sinkEdges[t];
+        int flow = residual[reverse[s]];
+        int v = pairEdges.length + 1 + t;
+        for (int e = offsets[v]; flow > capacity && e < offsets[v + 1]; e++) {
+            int p = targets[e];
+            if (p == sink) { continue; }
+            /* the reverse edge of pair -> team has the flow of that edge as residual capacity */
+            int back = Math.min(flow - capacity, residual[e]);
+            residual[e] -= back;
+            residual[reverse[e]] += back;
+            int pairEdge = pairEdges[p - 1];
+            residual[pairEdge] += back;
+            residual[reverse[pairEdge]] -= back;
+            flow -= back;
+        }
+        residual[s] = capacity - flow;
+        residual[reverse[s]] = flow;
+    }
+
+    /**
+     * Returns true if the given team of the league is on the source side of the min cut of the last check
+     *
+     * @param team
+     */
+    boolean inCut(int team) {
+        int t = local[team];
+        return t >= 0 && level[pairEdges.length + 1 + t] >= 0;
+    }
+
+    /**
+     * Method to augment the current flow to a max flow from the source to the sink
+     * <p>
+     * Algo: Dinic's algorithm - the vertices are labelled with their distance from the source through edges with
+     * residual capacity, and flow is sent along paths going one level further at every edge until none is left;
+     * then the labels are computed again. The last labelling leaves exactly the vertices reachable from the source
+     * labelled, which is the source side of the min cut.
+     */
+    private void maxFlow() {
+        while (label()) {
+            System.arraycopy(offsets, 0, next, 0, next.length);
+            int pushed;
+            do {
+                pushed = augment(SOURCE, INFINITY);
+            } while (pushed > 0);
+        }
+    }
+
+    /**
+     * Method to label every vertex with its distance from the source, -1 if it cannot be reached, returns true if
+     * the sink can be reached
+     */
+    private boolean label() {
+        Arrays.fill(level, -1);
+        level[SOURCE] = 0;
+        queue[0] = SOURCE;
+        for (int head = 0, tail = 1; head < tail; head++) {
+            int v = queue[head];
+            for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+                int w = targets[e];
+                if (residual[e] > 0 && level[w] < 0) {
+                    level[w] = level[v] + 1;
+                    queue[tail++] = w;
+                }
+            }
+        }
+        return level[sink] >= 0;
+    }
+
+    /**
+     * Method to send up to limit units of flow from v to the sink along a path of increasing levels, returns the
+     * flow sent. Edges that cannot take more flow in this labelling are skipped for good
+     *
+     * @param v
+     * @param limit
+     */
+    private int augment(int v, int limit) {
+        if (v == sink) { return limit; }
+        for (; next[v] < offsets[v + 1]; next[v]++) {
+            int e = next[v];
+            int w = targets[e];
+            if (residual[e] == 0 || level[w] != level[v] + 1) { continue; }
+            int pushed = augment(w, Math.min(limit, residual[e]));
+            if (pushed > 0) {
+                residual[e] -= pushed;
+                residual[reverse[e]] += pushed;
+                return pushed;
+            }
+        }
+        return 0;
+    }
+}